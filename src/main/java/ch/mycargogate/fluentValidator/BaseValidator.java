@@ -2,25 +2,95 @@ package ch.mycargogate.fluentValidator;
 
 import lombok.*;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.function.Predicate;
 
 @Getter
 @Setter
 @NoArgsConstructor
-public abstract class BaseValidator<F> {
+public abstract class BaseValidator<F> implements Cloneable {
     private String fieldName;
 
-    private final List<RuleRunner<F>> rules = new ArrayList<>();
+    private final List<ContextRule<F>> rules = new ArrayList<>();
+
+    // Stop at the first failing check
+    private boolean failFast = false;
+
+    // Condition of the rule, null when always applied
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private Guard guard;
+
+    // Validation groups of the rule, null when the rule belongs to all groups
+    @Getter(AccessLevel.PACKAGE)
+    private Set<String> groups;
 
     public BaseValidator(String fieldName) {
         this.fieldName = fieldName;
     }
 
+    void addGroups(String... names) {
+        if (groups == null) groups = new LinkedHashSet<>();
+        groups.addAll(Arrays.asList(names));
+    }
+
+    /**
+     * @return true if the rule has no group or one of the requested groups
+     */
+    boolean inGroups(Set<String> requested) {
+        if (groups == null) return true;
+        for (var group : groups)
+            if (requested.contains(group)) return true;
+        return false;
+    }
+
+    /**
+     * Validates the rule on the object holding the value, see {@link FlatRules}.
+     */
+    abstract void validateObject(String holder, Object object, List<ValidationError> errors);
+
+    /**
+     * @return true if the other rule runs the same checks on the same field, e.g. a super-class rule redeclared as is
+     */
+    boolean sameChecks(BaseValidator<?> other) {
+        return other.getClass() == getClass() && Objects.equals(fieldName, other.fieldName)
+                && failFast == other.failFast && guard == null && other.guard == null
+                && Objects.equals(groups, other.groups) && rules.equals(other.rules);
+    }
+
+    /**
+     * @return a copy of the rule stopping at the first failing check, sharing the checks of this rule
+     */
+    @SuppressWarnings("unchecked")
+    BaseValidator<F> failFastCopy() {
+        try {
+            var copy = (BaseValidator<F>) clone();
+            copy.failFast = true;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     public void addRule(RuleRunner<F> rule) {
+        rules.add(adapt(rule));
+    }
+
+    static <V> ContextRule<V> adapt(RuleRunner<V> rule) {
+        return new RunnerRule<>(rule);
+    }
+
+    // Adapters are records so that redeclaring the same rule object is recognized by sameChecks
+    private record RunnerRule<V>(RuleRunner<V> rule) implements ContextRule<V> {
+        @Override
+        public void check(RuleContext context, V value) {
+            var messages = rule.run(context.getHolder(), value);
+            if (messages != null)
+                messages.forEach(m -> context.reportMessage(m.code(), m.message()));
+        }
+    }
+
+    public void addCheck(ContextRule<F> rule) {
         rules.add(rule);
     }
 
@@ -29,36 +99,28 @@ public abstract class BaseValidator<F> {
     }
 
     public void addPredicate(Predicate<F> predicate, String code, GetErrorMessageArgs<F> getArgs) {
-        var rule = new RuleRunner<F>() {
-
-            @Override
-            public List<ErrorCodeMessage> run(String holder, F value) {
-                if( ! predicate.test(value) ) {
-                    var dynamicArgs = getArgs != null? getArgs.apply(value): null;
-                    Object [] varargs;
-                    if(dynamicArgs == null) {
-                        varargs = new Object[]{getFullFieldName(holder)};
-                    } else {
-                        varargs = new Object[dynamicArgs.length + 1];
-                        varargs[0] = getFullFieldName(holder);
-                        System.arraycopy(dynamicArgs, 0, varargs, 1, dynamicArgs.length);
-                    }
-
-                    String message = String.format(ValidatorMessages.message(code, varargs));
-                    return Collections.singletonList(new ErrorCodeMessage(code, message));
-                }
-
-                return null;
-            }
-        };
-
-        addRule(rule);
+        addCheck(new PredicateRule<>(predicate, code, getArgs));
     }
-    private void addCustomRule(RuleRunner<F> runner) {
-        rules.add(runner);
+
+    private record PredicateRule<V>(Predicate<V> predicate, String code, GetErrorMessageArgs<V> getArgs)
+            implements ContextRule<V> {
+        @Override
+        public void check(RuleContext context, V value) {
+            if( ! predicate.test(value) ) {
+                var dynamicArgs = getArgs != null? getArgs.apply(value): null;
+                if(dynamicArgs == null)
+                    context.report(code);
+                else
+                    context.report(code, dynamicArgs);
+            }
+        }
     }
 
     protected String getFullFieldName(String holder) {
+        return fullFieldName(holder, fieldName);
+    }
+
+    static String fullFieldName(String holder, String fieldName) {
         return holder == null? fieldName == null? "object": fieldName: fieldName == null? holder: holder + "." + fieldName;
     }
 
@@ -69,7 +131,30 @@ public abstract class BaseValidator<F> {
 
     protected void doValidate(String holder, F value, List<ValidationError> errors) {
         if(value != null)
-            getRules().forEach(c -> addErrorMessages(holder, errors, c.run(holder, value)));
+            runRules(holder, value, errors);
+    }
+
+    void runRules(String holder, F value, List<ValidationError> errors) {
+        if (rules.isEmpty()) return;
+
+        var context = RuleContext.open(this, holder, errors);
+        try {
+            for (var rule : rules) {
+                // the evaluation of this rule was counted by the validator running it
+                if (ValidationBudget.stopped()) return;
+                rule.check(context, value);
+                if (failFast && context.getErrorCount() > 0) return;
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Relative cost of the checks, used to run cheap checks first in fail-fast mode.
+     */
+    double estimatedCost() {
+        return RulePlan.RULE_COST * rules.size();
     }
 
     protected void addErrorMessage(String holder, List<ValidationError> errors, String code, String message) {
@@ -79,6 +164,13 @@ public abstract class BaseValidator<F> {
         }
     }
 
+    /**
+     * Adds an error whose message is formatted when read, the full field name is the first argument of the message.
+     */
+    void addError(String holder, List<ValidationError> errors, String code, Object... args) {
+        errors.add(ValidationError.deferred(holder, fieldName, code, args));
+    }
+
     protected void addErrorMessages(String holder, List<ValidationError> errors, List<ErrorCodeMessage> messages) {
         if(messages != null) {
             messages.forEach(m -> addErrorMessage(holder, errors, m.code(), m.message()));
@@ -0,0 +1,62 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Checks the elements of a collection against values loaded in one call: the keys of the elements are collected
+ * during the element pass, deduplicated, loaded together, then each element is checked with the value of its key.
+ * Elements with a null key are not checked.
+ */
+final class BatchLookup<E, K, V> implements ElementAggregate<E> {
+    private final String keyName;
+    private final Function<E, K> key;
+    private final Function<Set<K>, Map<K, V>> loader;
+    private final BiPredicate<E, V> check;
+    private final String code;
+
+    BatchLookup(String keyName, Function<E, K> key, Function<Set<K>, Map<K, V>> loader, BiPredicate<E, V> check,
+                String code) {
+        this.keyName = keyName;
+        this.key = key;
+        this.loader = loader;
+        this.check = check;
+        this.code = code;
+    }
+
+    @Override
+    public Accumulator<E> start(Object parent, int size) {
+        return new Accumulator<>() {
+            private final List<E> elements = new ArrayList<>(size);
+            private final List<K> elementKeys = new ArrayList<>(size);
+            private final int[] indexes = new int[size];
+            private final Set<K> keys = new LinkedHashSet<>();
+
+            @Override
+            public void accept(RuleContext context, int index, E element) {
+                if (element == null) return;
+                var k = key.apply(element);
+                if (k == null) return;
+
+                indexes[elements.size()] = index;
+                elements.add(element);
+                elementKeys.add(k);
+                keys.add(k);
+            }
+
+            @Override
+            public void finish(RuleContext context) {
+                if (keys.isEmpty()) return;
+
+                var values = loader.apply(Collections.unmodifiableSet(keys));
+                for (int i = 0; i < elements.size(); i++) {
+                    var k = elementKeys.get(i);
+                    var value = values == null ? null : values.get(k);
+                    if (!check.test(elements.get(i), value))
+                        context.report(code, indexes[i], keyName, k);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,166 @@
+package ch.mycargogate.fluentValidator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Keys seen in a batch of objects, to detect duplicates across the whole batch, see
+ * {@code FieldValidator.Builder.uniqueInBatch}.
+ * <p>
+ * Keys are stored off-heap: an open addressing table of offsets, and an arena of entries (hash, position, UTF-8
+ * bytes). Once the memory threshold is reached, new chunks are mapped in a temporary file of the spill directory,
+ * deleted on {@link #close()}. Each key is recorded with the position of its object in the batch, e.g. the record
+ * number of a {@link BatchValidator}; a duplicate returns the position of the first recorded occurrence.
+ */
+public final class BatchUniqueKeys implements AutoCloseable {
+    public static final long DEFAULT_MEMORY_THRESHOLD = 256L << 20;
+
+    private static final int ARENA_CHUNK = 4 << 20;
+    private static final int INITIAL_SLOTS = 1 << 12;
+    // entry: hash, position, length, bytes
+    private static final int ENTRY_HEADER = 8 + 8 + 4;
+
+    private final OffHeapBuffer.Allocator allocator;
+    private final OffHeapBuffer arena;
+    private long arenaEnd;
+
+    // arena offset + 1 of each entry, 0 when empty
+    private OffHeapBuffer slots;
+    private long slotMask;
+    private long size;
+
+    private long positions;
+
+    public BatchUniqueKeys() {
+        this(DEFAULT_MEMORY_THRESHOLD, Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    public BatchUniqueKeys(long memoryThreshold, Path spillDirectory) {
+        allocator = new OffHeapBuffer.Allocator(memoryThreshold, spillDirectory);
+        arena = new OffHeapBuffer(allocator, ARENA_CHUNK);
+        slots = newSlots(INITIAL_SLOTS);
+    }
+
+    /**
+     * Records the key at the next position of the batch, for objects validated once and in order; not to be mixed
+     * with {@link #addIfAbsent(String, long)}.
+     *
+     * @return the position of the first occurrence of the key, or -1 if the key is new
+     */
+    public synchronized long addIfAbsent(String key) {
+        return addIfAbsent(key, positions++);
+    }
+
+    /**
+     * Records the key at the position of its object in the batch.
+     *
+     * @return the position of the first recorded occurrence of the key, or -1 if the key is new or was recorded at
+     * the same position, e.g. when an object is validated again
+     */
+    public synchronized long addIfAbsent(String key, long position) {
+        var bytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(bytes);
+
+        long slot = mix(hash) & slotMask;
+        long entry;
+        while ((entry = slots.getLong(slot * 8)) != 0) {
+            long offset = entry - 1;
+            if (arena.getLong(offset) == hash && sameKey(offset, bytes)) {
+                long first = arena.getLong(offset + 8);
+                return first == position ? -1 : first;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+
+        slots.putLong(slot * 8, append(hash, position, bytes) + 1);
+        if (++size * 2 > slotMask + 1) grow();
+        return -1;
+    }
+
+    /**
+     * @return the number of distinct keys
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return true if some keys are stored in the spill file
+     */
+    public synchronized boolean isSpilled() {
+        return allocator.isSpilled();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        allocator.close();
+    }
+
+    private OffHeapBuffer newSlots(long count) {
+        var buffer = new OffHeapBuffer(allocator, (int) Math.min(1 << 30, count * 8));
+        buffer.ensureCapacity(count * 8);
+        slotMask = count - 1;
+        return buffer;
+    }
+
+    private long append(long hash, long position, byte[] bytes) {
+        int length = ENTRY_HEADER + bytes.length;
+        if (length > ARENA_CHUNK)
+            throw new IllegalArgumentException("Key too long: " + bytes.length + " bytes");
+
+        // entries never cross a chunk
+        if (arenaEnd < arena.capacity() && arena.remainingInChunk(arenaEnd) < length)
+            arenaEnd = arena.capacity();
+        arena.ensureCapacity(arenaEnd + length);
+
+        long offset = arenaEnd;
+        arena.putLong(offset, hash);
+        arena.putLong(offset + 8, position);
+        arena.putInt(offset + 16, bytes.length);
+        arena.put(offset + ENTRY_HEADER, bytes);
+        arenaEnd += length;
+        return offset;
+    }
+
+    private boolean sameKey(long offset, byte[] bytes) {
+        if (arena.getInt(offset + 16) != bytes.length) return false;
+        long start = offset + ENTRY_HEADER;
+        for (int i = 0; i < bytes.length; i++)
+            if (arena.get(start + i) != bytes[i]) return false;
+        return true;
+    }
+
+    private void grow() {
+        var old = slots;
+        long oldCount = slotMask + 1;
+        slots = newSlots(oldCount * 2);
+
+        for (long i = 0; i < oldCount; i++) {
+            long entry = old.getLong(i * 8);
+            if (entry == 0) continue;
+
+            long slot = mix(arena.getLong(entry - 1)) & slotMask;
+            while (slots.getLong(slot * 8) != 0) slot = (slot + 1) & slotMask;
+            slots.putLong(slot * 8, entry);
+        }
+        old.release();
+    }
+
+    // FNV-1a
+    private static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,392 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates the records of a large file in chunks, and resumes after a crash from its last checkpoint.
+ * <p>
+ * Records are decoded from a {@link FileChannel} by a {@link RecordDecoder}; the records of a chunk are validated in
+ * parallel, then their errors are appended in record order to the error log, a CSV file
+ * {@code record,holder,field,code,message}. After a chunk, once the checkpoint interval has elapsed, the error log is
+ * forced to disk and the checkpoint file (input offset, counters and error log size) is replaced atomically.
+ * <p>
+ * A run with an unfinished checkpoint resumes at its offset, truncating the errors logged after it; a run after a
+ * finished one starts over. Rules see the number of the validated record through {@link #currentRecord()}; a
+ * {@code uniqueInBatch} rule reports a duplicate with the record number of the first occurrence validated. Records
+ * of a chunk are validated in parallel, so of two equal keys in the same chunk, the one reported may be either.
+ * The keys of a {@link BatchUniqueKeys} are not part of the checkpoint: a resumed run starts with the keys it is
+ * given, usually none, so duplicates of records validated before the resume point are not reported.
+ * <pre>
+ * var batch = BatchValidator.builder(orderValidator, RecordDecoder.lines(Order::parse))
+ *         .errorLog(Path.of("orders.errors.csv"))
+ *         .build();
+ * var result = batch.run(Path.of("orders.txt"));
+ * </pre>
+ */
+@Slf4j
+public final class BatchValidator<T> {
+    private static final int BUFFER_SIZE = 1 << 20;
+    // number of the record validated by the thread, -1 if none
+    private static final ThreadLocal<long[]> CURRENT_RECORD = ThreadLocal.withInitial(() -> new long[]{-1});
+
+    private final FluentValidator<T> validator;
+    private final RecordDecoder<T> decoder;
+    private final int chunkSize;
+    private final int parallelism;
+    private final Duration checkpointInterval;
+    private final Path errorLog;
+    private final Path checkpoint;
+
+    private BatchValidator(Builder<T> builder) {
+        validator = builder.validator;
+        decoder = builder.decoder;
+        chunkSize = builder.chunkSize;
+        parallelism = builder.parallelism;
+        checkpointInterval = builder.checkpointInterval;
+        errorLog = builder.errorLog;
+        checkpoint = builder.checkpoint != null ? builder.checkpoint
+                : errorLog.resolveSibling(errorLog.getFileName() + ".checkpoint");
+    }
+
+    public static <T> Builder<T> builder(FluentValidator<T> validator, RecordDecoder<T> decoder) {
+        return new Builder<>(validator, decoder);
+    }
+
+    /**
+     * Counters of a whole batch, including the records validated before a resume.
+     */
+    @Getter
+    @ToString
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class Result {
+        private final long records;
+        private final long invalidRecords;
+        private final long errors;
+        // records validated by the previous runs, 0 if the batch was not resumed
+        private final long resumedRecords;
+
+        public boolean isResumed() {
+            return resumedRecords > 0;
+        }
+    }
+
+    /**
+     * @return the number of the record validated by the current thread, as in the error log, -1 outside of a run
+     */
+    public static long currentRecord() {
+        return CURRENT_RECORD.get()[0];
+    }
+
+    public Result run(Path input) throws IOException {
+        var state = State.read(checkpoint, Files.size(input));
+        long resumedRecords = state.records;
+        // uniqueInBatch keys of the records before the offset are not restored, see the class comment
+        if (state.offset > 0)
+            log.info("resuming " + input + " at record " + state.records + ", offset " + state.offset);
+
+        var executor = Executors.newFixedThreadPool(parallelism, task -> {
+            var thread = new Thread(task, "batch-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (var in = FileChannel.open(input, StandardOpenOption.READ);
+             var logChannel = FileChannel.open(errorLog, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (logChannel.size() < state.errorLogSize)
+                throw new IllegalStateException("Error log " + errorLog + " is shorter than its checkpoint");
+            logChannel.truncate(state.errorLogSize);
+            logChannel.position(state.errorLogSize);
+
+            var out = new BufferedWriter(Channels.newWriter(logChannel, StandardCharsets.UTF_8), 1 << 16);
+            var errors = ErrorReportWriter.errorLog(out, state.errorLogSize == 0);
+
+            var reader = new RecordReader<>(in, decoder, state.offset);
+            var chunk = new ArrayList<T>(chunkSize);
+            long lastCheckpoint = System.nanoTime();
+
+            while (true) {
+                chunk.clear();
+                long end = reader.read(chunk, chunkSize);
+                if (chunk.isEmpty()) break;
+
+                var chunkErrors = validate(state.records, chunk, executor);
+                for (int i = 0; i < chunkErrors.size(); i++) {
+                    var recordErrors = chunkErrors.get(i);
+                    if (recordErrors == null) continue;
+
+                    errors.write(state.records + i, recordErrors);
+                    state.invalidRecords++;
+                    state.errors += recordErrors.size();
+                }
+                state.records += chunk.size();
+                state.offset = end;
+
+                if (System.nanoTime() - lastCheckpoint >= checkpointInterval.toNanos()) {
+                    checkpoint(state, out, logChannel);
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+
+            state.complete = true;
+            checkpoint(state, out, logChannel);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Result(state.records, state.invalidRecords, state.errors, resumedRecords);
+    }
+
+    /**
+     * @return the errors of each record of the chunk, null for a valid record
+     */
+    private List<List<ValidationError>> validate(long firstRecord, List<T> chunk, ExecutorService executor) {
+        // each task sets its own records, the results are read after the tasks completed
+        var errors = new ArrayList<List<ValidationError>>(Collections.nCopies(chunk.size(), null));
+        int slice = (chunk.size() + parallelism - 1) / parallelism;
+
+        var tasks = new ArrayList<Future<?>>(parallelism);
+        for (int start = 0; start < chunk.size(); start += slice) {
+            int from = start, to = Math.min(start + slice, chunk.size());
+            tasks.add(executor.submit(() -> {
+                var recordErrors = new ArrayList<ValidationError>();
+                var record = CURRENT_RECORD.get();
+                // one clock reading for the relative date bounds of the whole slice
+                DateRange.Tick.enter();
+                try {
+                    for (int i = from; i < to; i++) {
+                        record[0] = firstRecord + i;
+                        if (validator.validateInto(chunk.get(i), recordErrors)) continue;
+
+                        errors.set(i, List.copyOf(recordErrors));
+                        recordErrors.clear();
+                    }
+                } finally {
+                    record[0] = -1;
+                    DateRange.Tick.exit();
+                }
+            }));
+        }
+
+        for (var task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Batch validation interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+                if (e.getCause() instanceof Error error) throw error;
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return errors;
+    }
+
+    private void checkpoint(State state, Writer out, FileChannel logChannel) throws IOException {
+        out.flush();
+        logChannel.force(false);
+        state.errorLogSize = logChannel.position();
+        state.write(checkpoint);
+    }
+
+    /**
+     * Reads the records of the file from an offset, in a buffer growing for records larger than it.
+     */
+    private static final class RecordReader<T> {
+        private final FileChannel channel;
+        private final RecordDecoder<T> decoder;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).flip();
+        // file offset of the start of the buffer
+        private long bufferOffset;
+        private boolean endOfInput;
+
+        RecordReader(FileChannel channel, RecordDecoder<T> decoder, long offset) throws IOException {
+            this.channel = channel;
+            this.decoder = decoder;
+            bufferOffset = offset;
+            channel.position(offset);
+        }
+
+        /**
+         * @return the file offset after the last record read
+         */
+        long read(List<T> records, int max) throws IOException {
+            while (records.size() < max) {
+                int position = buffer.position();
+                var record = decoder.decode(buffer, endOfInput);
+                if (record != null) {
+                    records.add(record);
+                    continue;
+                }
+                // skipped record
+                if (buffer.position() != position) continue;
+
+                if (endOfInput) {
+                    if (buffer.hasRemaining())
+                        throw new IllegalStateException("Incomplete record at offset " + (bufferOffset + position));
+                    break;
+                }
+                fill();
+            }
+            return bufferOffset + buffer.position();
+        }
+
+        private void fill() throws IOException {
+            bufferOffset += buffer.position();
+            buffer.compact();
+            if (!buffer.hasRemaining()) {
+                var larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                larger.put(buffer.flip());
+                buffer = larger;
+            }
+
+            if (channel.read(buffer) < 0) endOfInput = true;
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Position and counters of a batch, saved in the checkpoint file.
+     */
+    private static final class State {
+        long inputSize;
+        long offset;
+        long records;
+        long invalidRecords;
+        long errors;
+        long errorLogSize;
+        boolean complete;
+
+        static State read(Path file, long inputSize) throws IOException {
+            var state = new State();
+            state.inputSize = inputSize;
+            if (!Files.exists(file)) return state;
+
+            var properties = new Properties();
+            try (var in = Files.newInputStream(file)) {
+                properties.load(in);
+            }
+            if (Boolean.parseBoolean(properties.getProperty("complete"))) return state;
+
+            if (Long.parseLong(properties.getProperty("inputSize")) != inputSize)
+                throw new IllegalStateException("Checkpoint " + file + " was written for another input");
+
+            state.offset = Long.parseLong(properties.getProperty("offset"));
+            state.records = Long.parseLong(properties.getProperty("records"));
+            state.invalidRecords = Long.parseLong(properties.getProperty("invalidRecords"));
+            state.errors = Long.parseLong(properties.getProperty("errors"));
+            state.errorLogSize = Long.parseLong(properties.getProperty("errorLogSize"));
+            return state;
+        }
+
+        /**
+         * Writes a temporary file forced to disk, then moves it over the checkpoint.
+         */
+        void write(Path file) throws IOException {
+            var properties = new Properties();
+            properties.setProperty("inputSize", Long.toString(inputSize));
+            properties.setProperty("offset", Long.toString(offset));
+            properties.setProperty("records", Long.toString(records));
+            properties.setProperty("invalidRecords", Long.toString(invalidRecords));
+            properties.setProperty("errors", Long.toString(errors));
+            properties.setProperty("errorLogSize", Long.toString(errorLogSize));
+            properties.setProperty("complete", Boolean.toString(complete));
+
+            var bytes = new ByteArrayOutputStream();
+            properties.store(bytes, null);
+
+            var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(bytes.toByteArray()));
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    public static final class Builder<T> {
+        private final FluentValidator<T> validator;
+        private final RecordDecoder<T> decoder;
+        private int chunkSize = 10_000;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private Duration checkpointInterval = Duration.ofSeconds(30);
+        private Path errorLog;
+        private Path checkpoint;
+
+        private Builder(FluentValidator<T> validator, RecordDecoder<T> decoder) {
+            this.validator = validator;
+            this.decoder = decoder;
+        }
+
+        /**
+         * Number of records validated together, between two possible checkpoints; default 10000.
+         */
+        public Builder<T> chunkSize(int chunkSize) {
+            if (chunkSize < 1) throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * Number of threads validating a chunk; default the number of processors.
+         */
+        public Builder<T> parallelism(int parallelism) {
+            if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Minimum time between two checkpoints; default 30 seconds.
+         */
+        public Builder<T> checkpointInterval(Duration checkpointInterval) {
+            this.checkpointInterval = checkpointInterval;
+            return this;
+        }
+
+        public Builder<T> errorLog(Path errorLog) {
+            this.errorLog = errorLog;
+            return this;
+        }
+
+        /**
+         * Checkpoint file; default the error log file name followed by {@code .checkpoint}.
+         */
+        public Builder<T> checkpoint(Path checkpoint) {
+            this.checkpoint = checkpoint;
+            return this;
+        }
+
+        public BatchValidator<T> build() {
+            if (errorLog == null) throw new IllegalStateException("Batch validator without error log");
+            return new BatchValidator<>(this);
+        }
+    }
+}
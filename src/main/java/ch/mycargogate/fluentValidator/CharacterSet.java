@@ -0,0 +1,99 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.Arrays;
+
+/**
+ * Set of allowed characters, backed by a precomputed bitset.
+ * <p>
+ * Checking a string is a linear scan with one bit test per character, a cheap replacement for character-class
+ * regexes such as {@code [A-Z0-9 .,-]*}. Only characters of the basic multilingual plane can be members,
+ * supplementary characters are always rejected.
+ */
+public final class CharacterSet {
+    private static final String EDIFACT_A_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 .,-()/='+:?!\"%&*;<>";
+
+    public static final CharacterSet ASCII = range(0x00, 0x7f);
+    public static final CharacterSet ASCII_PRINTABLE = range(0x20, 0x7e);
+    public static final CharacterSet LATIN_1 = range(0x00, 0xff);
+    /** EDIFACT level A (UNOA): upper case letters, digits, space and punctuation. */
+    public static final CharacterSet EDIFACT_A = of(EDIFACT_A_CHARS);
+    /** EDIFACT level B (UNOB): level A plus lower case letters. */
+    public static final CharacterSet EDIFACT_B = of(EDIFACT_A_CHARS + "abcdefghijklmnopqrstuvwxyz");
+
+    private final long[] words;
+
+    private CharacterSet(long[] words) {
+        this.words = words;
+    }
+
+    public static CharacterSet of(String chars) {
+        int max = chars.chars().max().orElse(0);
+        var words = new long[(max >> 6) + 1];
+        chars.chars().forEach(c -> words[c >> 6] |= 1L << c);
+        return new CharacterSet(words);
+    }
+
+    public static CharacterSet range(int from, int to) {
+        if (from < 0 || to > Character.MAX_VALUE || from > to)
+            throw new IllegalArgumentException("Invalid character range: " + from + "-" + to);
+
+        var words = new long[(to >> 6) + 1];
+        for (int c = from; c <= to; c++)
+            words[c >> 6] |= 1L << c;
+        return new CharacterSet(words);
+    }
+
+    public CharacterSet union(CharacterSet other) {
+        var words = Arrays.copyOf(this.words, Math.max(this.words.length, other.words.length));
+        for (int i = 0; i < other.words.length; i++)
+            words[i] |= other.words[i];
+        return new CharacterSet(words);
+    }
+
+    public boolean contains(char c) {
+        int word = c >> 6;
+        return word < words.length && (words[word] & (1L << c)) != 0;
+    }
+
+    /**
+     * @return the index of the first character not in the set, -1 if all characters are members
+     */
+    public int indexOfInvalid(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (!contains(s.charAt(i))) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CharacterSet other)) return false;
+
+        // Trailing empty words do not change the set
+        int n = Math.max(words.length, other.words.length);
+        for (int i = 0; i < n; i++) {
+            if (word(i) != other.word(i)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0)
+            length--;
+        return Arrays.hashCode(Arrays.copyOf(words, length));
+    }
+
+    private long word(int i) {
+        return i < words.length ? words[i] : 0;
+    }
+
+    long[] words() {
+        return words.clone();
+    }
+
+    static CharacterSet ofWords(long[] words) {
+        return new CharacterSet(words.clone());
+    }
+}
@@ -0,0 +1,104 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Errors with the same code and field on several elements of a collection, see
+ * {@code CollectionValidator.Builder.collapseErrors}. Holder and message are those of the first error, followed by
+ * the number of errors and the element ranges.
+ * <p>
+ * Only the element ranges, the message arguments of the first error and the arguments differing from them are kept;
+ * {@link #expand()} rebuilds the individual errors from them, without validating the elements again.
+ */
+@Getter
+public class CollapsedError extends ValidationError {
+    private static final int MAX_PRINTED_RANGES = 20;
+
+    private final int count;
+    // ranges of element indexes, start inclusive and end exclusive
+    @Getter(AccessLevel.NONE)
+    private final int[] ranges;
+
+    // holder and name of the collection, the element index is inserted after them on expand
+    @Getter(AccessLevel.NONE)
+    private final String collectionHolder;
+    @Getter(AccessLevel.NONE)
+    private final String collectionField;
+    @Getter(AccessLevel.NONE)
+    private final ErrorCollapser.Group group;
+
+    CollapsedError(ErrorCollapser.Group group, String collectionHolder, String collectionField) {
+        super(group.first.getHolder(), group.first.getField(), group.first.getCode(),
+                ValidatorMessages.message(ErrorCode.COLLAPSED, group.first.getMessage(), group.count, format(group.ranges)));
+        this.count = group.count;
+        this.ranges = group.ranges;
+        this.collectionHolder = collectionHolder;
+        this.collectionField = collectionField;
+        this.group = group;
+    }
+
+    /**
+     * @return a copy of the ranges of element indexes, start inclusive and end exclusive
+     */
+    public int[] getRanges() {
+        return ranges.clone();
+    }
+
+    /**
+     * @return the indexes of the elements in error
+     */
+    public int[] getElementIndexes() {
+        int size = 0;
+        for (int i = 0; i < ranges.length; i += 2) size += ranges[i + 1] - ranges[i];
+
+        var indexes = new int[size];
+        int n = 0;
+        for (int i = 0; i < ranges.length; i += 2)
+            for (int index = ranges[i]; index < ranges[i + 1]; index++) indexes[n++] = index;
+        return indexes;
+    }
+
+    /**
+     * Rebuilds the individual errors, their paths carry the element index, e.g. {@code Order.lines[3]}.
+     */
+    public List<ValidationError> expand() {
+        var elementsPath = collectionHolder == null ? null : BaseValidator.fullFieldName(collectionHolder, collectionField);
+        var errors = new ArrayList<ValidationError>(count);
+
+        group.forEach((element, args, message) -> {
+            var index = "[" + element + "]";
+            var holder = getHolder();
+            var field = getField();
+
+            if (Objects.equals(holder, collectionHolder) && Objects.equals(field, collectionField))
+                field += index;
+            else if (elementsPath != null && holder != null && holder.startsWith(elementsPath)
+                    && (holder.length() == elementsPath.length() || holder.charAt(elementsPath.length()) == '.'))
+                holder = elementsPath + index + holder.substring(elementsPath.length());
+
+            errors.add(args != null
+                    ? ValidationError.deferred(holder, field, getCode(), args)
+                    : new ValidationError(holder, field, getCode(), message));
+        });
+        return errors;
+    }
+
+    private static String format(int[] ranges) {
+        var text = new StringBuilder();
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (i == 2 * MAX_PRINTED_RANGES) {
+                text.append(", ...");
+                break;
+            }
+            if (i > 0) text.append(", ");
+            text.append(ranges[i]);
+            if (ranges[i + 1] - ranges[i] > 1) text.append('-').append(ranges[i + 1] - 1);
+        }
+        return text.toString();
+    }
+}
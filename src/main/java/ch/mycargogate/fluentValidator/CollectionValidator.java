@@ -6,9 +6,17 @@ import lombok.Setter;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 // ==== ListRule ====
 @Getter
@@ -17,7 +25,11 @@ class CollectionValidator<E> extends ValueValidator<Collection<E>> {
     private boolean forbidden = false;
     private Integer minSize, maxSize;
     private FluentValidator<E> elementFluentValidator;
-    private final List<RuleRunner<E>> elementRules = new ArrayList<>();
+    private final List<ContextRule<E>> elementRules = new ArrayList<>();
+    // checks over all the elements, e.g. uniqueBy
+    private final List<ElementAggregate<E>> aggregates = new ArrayList<>();
+    // identical element errors are reported once, see CollapsedError
+    private boolean collapseErrors = false;
 
     CollectionValidator(Method getter) {
         super(getter);
@@ -27,32 +39,45 @@ class CollectionValidator<E> extends ValueValidator<Collection<E>> {
         super(clazz, fieldName);
     }
 
-    private void addElementRule(RuleRunner<E> rule) {
+    private void addElementRule(ContextRule<E> rule) {
         elementRules.add(rule);
     }
 
     private void addElementPredicate(Predicate<E> predicate, String code) {
-        var elementRule = new RuleRunner<E>() {
+        addElementRule(new ContextRule<>() {
 
             @Override
-            public List<ErrorCodeMessage> run(String holder, E value) {
-                if( ! predicate.test(value) ) {
-                    String message = String.format(ValidatorMessages.message(code, getFullFieldName(holder), value));
-                    return Collections.singletonList(new ErrorCodeMessage(code, message));
-                }
-                return null;
+            public void check(RuleContext context, E value) {
+                if( ! predicate.test(value) )
+                    context.report(code, value);
             }
-        };
+        });
+    }
 
-        addElementRule(elementRule);
+    @Override
+    void validateObject(String holder, Object object, List<ValidationError> errors) {
+        validate(holder, object, errors);
     }
 
     protected void validate(String holder, Object object, List<ValidationError> errors) {
+        validate(holder, object, getValue(object), errors);
+    }
+
+    @Override
+    boolean sameChecks(BaseValidator<?> other) {
+        if (!super.sameChecks(other)) return false;
+
+        var o = (CollectionValidator<?>) other;
+        return forbidden == o.forbidden && collapseErrors == o.collapseErrors && Objects.equals(minSize, o.minSize)
+                && Objects.equals(maxSize, o.maxSize) && elementFluentValidator == o.elementFluentValidator
+                && elementRules.equals(o.elementRules) && aggregates.equals(o.aggregates);
+    }
+
+    Collection<E> getValue(Object object) {
         try {
             @SuppressWarnings("unchecked")
             Collection<E> value = (Collection<E>) getGetter((Class<E>) object.getClass()).invoke(object);
-
-            doValidate(holder, value, errors);
+            return value;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -60,42 +85,161 @@ class CollectionValidator<E> extends ValueValidator<Collection<E>> {
 
     @Override
     protected void doValidate(String holder, Collection<E> collection, List<ValidationError> errors) {
+        validate(holder, null, collection, errors);
+    }
+
+    /**
+     * @param parent object holding the collection, null if unknown
+     */
+    void validate(String holder, Object parent, Collection<E> collection, List<ValidationError> errors) {
+        validateCollection(holder, collection, errors);
+
+        if (collection == null || !hasElementChecks()) return;
+
+        if (!collapseErrors) {
+            validateElements(holder, parent, collection, errors, null);
+            return;
+        }
+
+        // The errors of each element go through a scratch list, then are grouped
+        var collapser = new ErrorCollapser(holder, getFieldName());
+        validateElements(holder, parent, collection, new ArrayList<>(), collapser);
+        collapser.flush(errors);
+    }
+
+    /**
+     * One pass over the elements, each running the element rules, the aggregates then the element validator.
+     */
+    private void validateElements(String holder, Object parent, Collection<E> collection, List<ValidationError> errors,
+                                  ErrorCollapser collapser) {
+        int before = errors.size();
+        var context = RuleContext.open(this, holder, errors);
+        var elementHolder = elementHolder(holder);
+        var accumulators = startAggregates(parent, collection.size());
+
+        try {
+            if (collection instanceof List<E> list && collection instanceof RandomAccess) {
+                for (int i = 0, size = list.size(); i < size; i++) {
+                    if (isFailFast() && (errors.size() > before || collapser != null && collapser.hasErrors())
+                            || ValidationBudget.exhausted()) return;
+                    validateElement(elementHolder, context, accumulators, i, list.get(i), errors, collapser == null);
+                    if (collapser != null) collapser.add(i, errors);
+                }
+            } else {
+                int index = 0;
+                for (E e : collection) {
+                    if (isFailFast() && (errors.size() > before || collapser != null && collapser.hasErrors())
+                            || ValidationBudget.exhausted()) return;
+                    validateElement(elementHolder, context, accumulators, index, e, errors, collapser == null);
+                    if (collapser != null) collapser.add(index, errors);
+                    index++;
+                }
+            }
+
+            for (var accumulator : accumulators)
+                accumulator.finish(context);
+            if (collapser != null) collapser.add(-1, errors);
+        } finally {
+            context.close();
+        }
+    }
+
+    boolean hasElementChecks() {
+        return elementFluentValidator != null || !elementRules.isEmpty() || hasAggregates();
+    }
+
+    /**
+     * @return true if some checks need all the elements, the collection is then never validated incrementally
+     */
+    boolean hasAggregates() {
+        return !aggregates.isEmpty();
+    }
+
+    boolean readsParent() {
+        for (var aggregate : aggregates)
+            if (aggregate.readsParent()) return true;
+        return false;
+    }
+
+    private List<ElementAggregate.Accumulator<E>> startAggregates(Object parent, int size) {
+        if (aggregates.isEmpty()) return List.of();
+
+        var accumulators = new ArrayList<ElementAggregate.Accumulator<E>>(aggregates.size());
+        for (var aggregate : aggregates)
+            accumulators.add(aggregate.start(parent, size));
+        return accumulators;
+    }
+
+    @Override
+    double estimatedCost() {
+        double cost = super.estimatedCost() + RulePlan.GETTER_COST + RulePlan.CHECK_COST;
+        if (elementFluentValidator != null) cost += RulePlan.NESTED_COST;
+        cost += elementRules.size() * RulePlan.RULE_COST;
+        return cost;
+    }
+
+    /**
+     * Rules of the collection itself, without its elements.
+     */
+    void validateCollection(String holder, Collection<E> collection, List<ValidationError> errors) {
         super.doValidate(holder, collection, errors);
 
         // optional null value
         if(collection == null ) return;
 
         if(forbidden) {
-            String message = ValidatorMessages.message(ErrorCode.FORBIDDEN, getFullFieldName(holder));
-            addErrorMessage(holder, errors, ErrorCode.FORBIDDEN, message);
+            addError(holder, errors, ErrorCode.FORBIDDEN);
         }
 
         if (minSize != null && collection.size() < minSize) {
-            String message = ValidatorMessages.message(ErrorCode.SIZE_LT, getFullFieldName(holder), collection.size(), minSize);
-            addErrorMessage(holder, errors, ErrorCode.SIZE_LT, message);
+            addError(holder, errors, ErrorCode.SIZE_LT, collection.size(), minSize);
         }
 
         if (maxSize != null && collection.size() > maxSize) {
-            String message = ValidatorMessages.message(ErrorCode.SIZE_GT, getFullFieldName(holder), collection.size(), maxSize);
-            addErrorMessage(holder, errors, ErrorCode.SIZE_GT, message);
+            addError(holder, errors, ErrorCode.SIZE_GT, collection.size(), maxSize);
         }
+    }
 
-        if (elementFluentValidator != null) {
-            var newHolder = getFullFieldName(holder);
+    void validateElement(String holder, int index, E e, List<ValidationError> errors) {
+        var context = RuleContext.open(this, holder, errors);
+        try {
+            validateElement(elementHolder(holder), context, startAggregates(null, 0), index, e, errors, true);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Holder of the elements, null when it depends on the element class.
+     */
+    private String elementHolder(String holder) {
+        return holder == null ? null : holder + "." + getFieldName();
+    }
 
-            int index = 0;
-            for (E e : collection) {
+    /**
+     * @param indexed false when the errors are collapsed, the paths of the errors then have no element index
+     */
+    private void validateElement(String elementHolder, RuleContext context, List<ElementAggregate.Accumulator<E>> accumulators,
+                                 int index, E e, List<ValidationError> errors, boolean indexed) {
+        int before = errors.size();
+        if (indexed) context.setElement(index);
+        for (var rule : elementRules) {
+            rule.check(context, e);
+            if (isFailFast() && errors.size() > before) break;
+        }
+        context.setElement(-1);
+        if (isFailFast() && errors.size() > before) return;
 
-                String elementHolder = holder == null? e.getClass().getSimpleName(): holder;
-                if( e instanceof HolderNode node)
-                    elementHolder += "." +getFieldName() + "[" + node.holderNodeName() + "]";
-                else
-                    elementHolder +=  "." + getFieldName();
+        // indexed, no iterator per element
+        for (int i = 0; i < accumulators.size(); i++)
+            accumulators.get(i).accept(context, index, e);
 
-                var result = elementFluentValidator.validate(elementHolder, e);
-                errors.addAll(result.getErrors());
-                index++;
-            }
+        if (elementFluentValidator != null) {
+            var holder = elementHolder != null ? elementHolder : e.getClass().getSimpleName() + "." + getFieldName();
+            if (indexed)
+                holder += e instanceof HolderNode node ? "[" + node.holderNodeName() + "]" : "[" + index + "]";
+
+            elementFluentValidator.validateInto(holder, e, errors);
         }
     }
 
@@ -116,6 +260,20 @@ class CollectionValidator<E> extends ValueValidator<Collection<E>> {
             this.parent = parent;
         }
 
+        /**
+         * The rule applies only when the condition holds on the validated object, e.g.
+         * {@code when(s -> s.getWorkflow() == IMPORT)}. Several conditions must all hold.
+         */
+        public Builder<T, E> when(Predicate<T> condition) {
+            rule.setGuard(parent.guard(condition, false, rule.getGuard()));
+            return this;
+        }
+
+        public Builder<T, E> unless(Predicate<T> condition) {
+            rule.setGuard(parent.guard(condition, true, rule.getGuard()));
+            return this;
+        }
+
         public Builder<T, E> mandatory() {
             rule.setMandatory(true);
             return this;
@@ -136,12 +294,29 @@ class CollectionValidator<E> extends ValueValidator<Collection<E>> {
             return this;
         }
 
+        /**
+         * Errors with the same code and field on several elements are reported once, as a {@link CollapsedError}
+         * with the indexes of the elements.
+         */
+        public Builder<T, E> collapseErrors() {
+            rule.setCollapseErrors(true);
+            return this;
+        }
+
         public Builder<T, E> elementValidator(FluentValidator<E> elementFluentValidator) {
             rule.setElementValidator(elementFluentValidator);
             return this;
         }
 
         public Builder<T, E> elementRule(RuleRunner<E> elementRule) {
+            rule.addElementRule(adapt(elementRule));
+            return this;
+        }
+
+        /**
+         * Element rule reporting its errors to the {@link RuleContext} of the collection.
+         */
+        public Builder<T, E> elementCheck(ContextRule<E> elementRule) {
             rule.addElementRule(elementRule);
             return this;
         }
@@ -151,6 +326,103 @@ class CollectionValidator<E> extends ValueValidator<Collection<E>> {
             return this;
         }
 
+        /**
+         * Sum of a numeric value of the elements, to compare with a limit, e.g.
+         * {@code sumOf(Package::getWeight).atMost(Shipment::getGrossWeight)}. Null values are ignored.
+         */
+        public NumericAggregate.Builder<T, E> sumOf(GetterRef<E, ? extends Number> value) {
+            return aggregate(NumericAggregate.Kind.SUM, FieldName.nameOf(value), value, null);
+        }
+
+        /**
+         * Same as {@link #sumOf(GetterRef)} without boxing.
+         */
+        public NumericAggregate.Builder<T, E> sumOf(String name, ToDoubleFunction<E> value) {
+            return aggregate(NumericAggregate.Kind.SUM, name, null, value);
+        }
+
+        public NumericAggregate.Builder<T, E> minOf(GetterRef<E, ? extends Number> value) {
+            return aggregate(NumericAggregate.Kind.MIN, FieldName.nameOf(value), value, null);
+        }
+
+        public NumericAggregate.Builder<T, E> minOf(String name, ToDoubleFunction<E> value) {
+            return aggregate(NumericAggregate.Kind.MIN, name, null, value);
+        }
+
+        public NumericAggregate.Builder<T, E> maxOf(GetterRef<E, ? extends Number> value) {
+            return aggregate(NumericAggregate.Kind.MAX, FieldName.nameOf(value), value, null);
+        }
+
+        public NumericAggregate.Builder<T, E> maxOf(String name, ToDoubleFunction<E> value) {
+            return aggregate(NumericAggregate.Kind.MAX, name, null, value);
+        }
+
+        /**
+         * Number of elements matching the condition, e.g. {@code countWhere("dangerous", Package::isDangerous).atMost(3)}.
+         */
+        public NumericAggregate.Builder<T, E> countWhere(String name, Predicate<E> condition) {
+            return aggregate(NumericAggregate.Kind.COUNT, name, null, e -> condition.test(e) ? 1 : 0);
+        }
+
+        private NumericAggregate.Builder<T, E> aggregate(NumericAggregate.Kind kind, String name,
+                                                         GetterRef<E, ? extends Number> number,
+                                                         ToDoubleFunction<E> primitive) {
+            return new NumericAggregate.Builder<>(this, aggregate -> rule.aggregates.add(aggregate), kind, name,
+                    number, primitive);
+        }
+
+        /**
+         * The key of each element is found by the loader, called once with the keys of all the elements, e.g.
+         * {@code lookup(Line::getProductId, catalog::findAll)}. A missing key is reported with {@link ErrorCode#NOT_FOUND}.
+         */
+        public <K, V> Builder<T, E> lookup(GetterRef<E, K> key, Function<Set<K>, Map<K, V>> loader) {
+            return lookup(key, loader, (e, value) -> value != null, ErrorCode.NOT_FOUND);
+        }
+
+        /**
+         * Checks each element with the value of its key, null when not found; the message of the code has the field,
+         * the element index, the key name and the key as arguments.
+         */
+        public <K, V> Builder<T, E> lookup(GetterRef<E, K> key, Function<Set<K>, Map<K, V>> loader,
+                                           BiPredicate<E, V> check, String code) {
+            rule.aggregates.add(new BatchLookup<>(FieldName.nameOf(key), key::apply, loader, check, code));
+            return this;
+        }
+
+        /**
+         * No two elements have the same key, e.g. {@code uniqueBy(Package::getSscc)}. Each duplicate is reported with
+         * its index and the index of the first element with the same key; null keys are not checked.
+         */
+        public <K> Builder<T, E> uniqueBy(GetterRef<E, K> key) {
+            rule.aggregates.add(UniqueKey.of(FieldName.nameOf(key), key::apply));
+            return this;
+        }
+
+        /**
+         * Same as {@link #uniqueBy(GetterRef)} for an int key, without boxing.
+         */
+        public Builder<T, E> uniqueByInt(String keyName, ToIntFunction<E> key) {
+            rule.aggregates.add(UniqueKey.ofLong(keyName, key::applyAsInt));
+            return this;
+        }
+
+        /**
+         * Same as {@link #uniqueBy(GetterRef)} for a long key, without boxing.
+         */
+        public Builder<T, E> uniqueByLong(String keyName, ToLongFunction<E> key) {
+            rule.aggregates.add(UniqueKey.ofLong(keyName, key));
+            return this;
+        }
+
+        /**
+         * Validation groups of the rule, see {@link FluentValidator#validate(Object, String...)}. A rule without
+         * group belongs to all of them.
+         */
+        public Builder<T, E> groups(String... groups) {
+            rule.addGroups(groups);
+            return this;
+        }
+
         public FluentValidator.Builder<T> done() {
             return parent;
         }
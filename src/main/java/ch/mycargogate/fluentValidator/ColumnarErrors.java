@@ -0,0 +1,306 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+
+/**
+ * Error list storing the errors in columns of ids, for batches with millions of errors.
+ * <p>
+ * Codes and fields are interned, holders are stored as nodes of a path tree ({@code "Order.lines[3]"} is the node
+ * {@code lines[3]} under the node {@code Order}). The message of a rule is not formatted: only its arguments are kept,
+ * in a column shared by all errors. Other messages are interned; one starting with the full field name of its error
+ * only keeps the rest of the message. A {@link CollapsedError} is kept as is, to keep its count and ranges.
+ * The errors are materialized on {@link #get}; use {@link #countByCode()} and {@link #countByField()} to aggregate
+ * without materializing them.
+ * <p>
+ * Errors can only be appended; the list is not thread-safe.
+ */
+public final class ColumnarErrors extends AbstractList<ValidationError> implements RandomAccess {
+    private static final int NONE = -1;
+    // message id flag: the message is the full field name followed by the interned text
+    private static final int PREFIXED = 1 << 31;
+    // message id of a message formatted from the code and the arguments
+    private static final int FORMATTED = -2;
+
+    private final Strings codes = new Strings();
+    private final Strings fields = new Strings();
+    private final Strings messages = new Strings();
+    private final Strings segments = new Strings();
+
+    // path tree of the holders
+    private final Map<Long, Integer> nodeIndex = new HashMap<>();
+    private int[] nodeParents = new int[64];
+    private int[] nodeSegments = new int[64];
+    private int nodeCount;
+
+    // last holder, errors of an object share the same holder
+    private String lastHolder;
+    private int lastNode = NONE;
+
+    private int[] holderIds = new int[256];
+    private int[] fieldIds = new int[256];
+    private int[] codeIds = new int[256];
+    private int[] messageIds = new int[256];
+    private int size;
+
+    // message arguments, those of the error i from argStarts[i] to argStarts[i + 1]
+    private Object[] args = new Object[512];
+    private int[] argStarts = new int[257];
+
+    // collapsed errors by index
+    private final Map<Integer, CollapsedError> collapsed = new HashMap<>();
+
+    private final FieldPath fieldPath = new FieldPath();
+    private final StringBuilder path = new StringBuilder();
+
+    @Override
+    public boolean add(ValidationError error) {
+        if (size == codeIds.length) {
+            int capacity = size * 2;
+            holderIds = Arrays.copyOf(holderIds, capacity);
+            fieldIds = Arrays.copyOf(fieldIds, capacity);
+            codeIds = Arrays.copyOf(codeIds, capacity);
+            messageIds = Arrays.copyOf(messageIds, capacity);
+            argStarts = Arrays.copyOf(argStarts, capacity + 1);
+        }
+
+        var holder = error.getHolder();
+        var field = error.getField();
+
+        holderIds[size] = holderId(holder);
+        fieldIds[size] = fields.id(field);
+        codeIds[size] = codes.id(error.getCode());
+
+        int argStart = argStarts[size];
+        var messageArgs = error.getMessageArgs();
+        if (messageArgs != null) {
+            if (argStart + messageArgs.length > args.length)
+                args = Arrays.copyOf(args, Math.max(args.length * 2, argStart + messageArgs.length));
+            System.arraycopy(messageArgs, 0, args, argStart, messageArgs.length);
+            messageIds[size] = FORMATTED;
+            argStarts[size + 1] = argStart + messageArgs.length;
+        } else {
+            var message = error.getMessage();
+            var prefix = BaseValidator.fullFieldName(holder, field);
+            if (message != null && message.startsWith(prefix))
+                messageIds[size] = messages.id(message.substring(prefix.length())) | PREFIXED;
+            else
+                messageIds[size] = messages.id(message);
+            argStarts[size + 1] = argStart;
+        }
+
+        if (error instanceof CollapsedError c) collapsed.put(size, c);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public ValidationError get(int index) {
+        Objects.checkIndex(index, size);
+        var c = collapsed.get(index);
+        if (c != null) return c;
+
+        var holder = holder(holderIds[index]);
+        var field = fields.get(fieldIds[index]);
+        int messageId = messageIds[index];
+        if (messageId == FORMATTED)
+            return ValidationError.deferred(holder, field, codes.get(codeIds[index]),
+                    Arrays.copyOfRange(args, argStarts[index], argStarts[index + 1]));
+
+        var message = messageId != NONE && (messageId & PREFIXED) != 0
+                ? BaseValidator.fullFieldName(holder, field) + messages.get(messageId & ~PREFIXED)
+                : messages.get(messageId);
+
+        return new ValidationError(holder, field, codes.get(codeIds[index]), message);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(args, 0, argStarts[size], null);
+        collapsed.clear();
+        size = 0;
+        modCount++;
+    }
+
+    public String getCode(int index) {
+        Objects.checkIndex(index, size);
+        return codes.get(codeIds[index]);
+    }
+
+    public String getField(int index) {
+        Objects.checkIndex(index, size);
+        return fields.get(fieldIds[index]);
+    }
+
+    /**
+     * @return the number of errors of the entry, more than 1 for a {@link CollapsedError}
+     */
+    int getCount(int index) {
+        Objects.checkIndex(index, size);
+        var c = collapsed.get(index);
+        return c == null ? 1 : c.getCount();
+    }
+
+    /**
+     * Appends the holder of the error, for writers streaming the errors without materializing them.
+     *
+     * @return false if the error has no holder
+     */
+    boolean appendHolder(int index, StringBuilder out) {
+        Objects.checkIndex(index, size);
+        if (holderIds[index] == NONE) return false;
+
+        appendPath(out, holderIds[index]);
+        return true;
+    }
+
+    /**
+     * Appends the message of the error to a formatter of a {@link StringBuilder}, same as {@link #appendHolder}.
+     *
+     * @return false if the error has no message
+     */
+    boolean appendMessage(int index, Formatter formatter) {
+        Objects.checkIndex(index, size);
+        int messageId = messageIds[index];
+        if (messageId == NONE) return false;
+
+        var out = (StringBuilder) formatter.out();
+        if (messageId == FORMATTED) {
+            path.setLength(0);
+            var field = fields.get(fieldIds[index]);
+            var holder = holderIds[index] == NONE ? null : path;
+            if (holder != null) appendPath(path, holderIds[index]);
+
+            int start = argStarts[index], count = argStarts[index + 1] - start;
+            var formatArgs = new Object[count + 1];
+            formatArgs[0] = fieldPath.set(holder, field);
+            System.arraycopy(args, start, formatArgs, 1, count);
+            ValidatorMessages.appendMessage(formatter, codes.get(codeIds[index]), formatArgs);
+            return true;
+        }
+
+        if ((messageId & PREFIXED) != 0) {
+            var field = fields.get(fieldIds[index]);
+            if (holderIds[index] == NONE) out.append(field == null ? "object" : field);
+            else {
+                appendPath(out, holderIds[index]);
+                if (field != null) out.append('.').append(field);
+            }
+        }
+        out.append(messages.get(messageId & ~PREFIXED));
+        return true;
+    }
+
+    /**
+     * @return the number of errors of each code, in order of first occurrence
+     */
+    public Map<String, Integer> countByCode() {
+        return count(codeIds, codes);
+    }
+
+    /**
+     * @return the number of errors of each field name, in order of first occurrence
+     */
+    public Map<String, Integer> countByField() {
+        return count(fieldIds, fields);
+    }
+
+    private Map<String, Integer> count(int[] ids, Strings strings) {
+        var counts = new int[strings.size() + 1];
+        for (int i = 0; i < size; i++)
+            counts[ids[i] + 1]++;
+
+        var result = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < size; i++) {
+            int id = ids[i];
+            if (counts[id + 1] > 0) {
+                result.put(strings.get(id), counts[id + 1]);
+                counts[id + 1] = 0;
+            }
+        }
+        return result;
+    }
+
+    private int holderId(String holder) {
+        if (holder == null) return NONE;
+        if (holder.equals(lastHolder)) return lastNode;
+
+        int node = NONE;
+        int start = 0;
+        while (true) {
+            int end = holder.indexOf('.', start);
+            var segment = holder.substring(start, end < 0 ? holder.length() : end);
+            node = node(node, segments.id(segment));
+            if (end < 0) break;
+            start = end + 1;
+        }
+
+        lastHolder = holder;
+        lastNode = node;
+        return node;
+    }
+
+    private int node(int parent, int segment) {
+        long key = ((long) parent << 32) | (segment & 0xFFFFFFFFL);
+        var node = nodeIndex.get(key);
+        if (node != null) return node;
+
+        if (nodeCount == nodeParents.length) {
+            nodeParents = Arrays.copyOf(nodeParents, nodeCount * 2);
+            nodeSegments = Arrays.copyOf(nodeSegments, nodeCount * 2);
+        }
+        nodeParents[nodeCount] = parent;
+        nodeSegments[nodeCount] = segment;
+        nodeIndex.put(key, nodeCount);
+        return nodeCount++;
+    }
+
+    private String holder(int node) {
+        if (node == NONE) return null;
+
+        var path = new StringBuilder();
+        appendPath(path, node);
+        return path.toString();
+    }
+
+    private void appendPath(StringBuilder path, int node) {
+        if (nodeParents[node] != NONE) {
+            appendPath(path, nodeParents[node]);
+            path.append('.');
+        }
+        path.append(segments.get(nodeSegments[node]));
+    }
+
+    /**
+     * Interned strings, null has the id -1.
+     */
+    private static final class Strings {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            if (value == null) return NONE;
+
+            var id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                ids.put(value, id);
+                values.add(value);
+            }
+            return id;
+        }
+
+        String get(int id) {
+            return id == NONE ? null : values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ch.mycargogate.fluentValidator;
+
+/**
+ * Rule reporting its errors to the context, without returning a list of messages as {@link RuleRunner} does, e.g.
+ * <pre>{@code
+ * .fieldRule(Order::getWeight).check((context, weight) -> {
+ *     if (weight > maxWeight) context.report(ErrorCode.GREATER_THAN_MAX, weight, maxWeight);
+ * }).done()
+ * }</pre>
+ */
+@FunctionalInterface
+public interface ContextRule<T> extends java.io.Serializable {
+    void check(RuleContext context, T value);
+}
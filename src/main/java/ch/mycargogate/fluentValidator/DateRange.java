@@ -0,0 +1,148 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.Getter;
+
+import java.time.*;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Date range of a temporal field, compiled to primitive bounds.
+ * <p>
+ * Absolute bounds are kept as an epoch day (for {@link LocalDate} values) and an epoch second at UTC midnight
+ * (for date-times), so a value is checked by comparing longs. Local date-times are interpreted in UTC.
+ * <p>
+ * The relative bound ({@code notOlderThan}) is computed from a {@link Tick}: the clock is read once per validation
+ * run, not once per validated value.
+ */
+@Getter
+class DateRange {
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private LocalDate notBefore, notAfter;
+    private Duration maxAge;
+    private Clock clock = Clock.systemUTC();
+
+    // Compiled bounds
+    private long notBeforeDay = Long.MIN_VALUE, notAfterDay = Long.MAX_VALUE;
+    private long notBeforeSecond = Long.MIN_VALUE, notAfterSecond = Long.MAX_VALUE;
+
+    void setNotBefore(LocalDate date) {
+        notBefore = date;
+        notBeforeDay = date.toEpochDay();
+        notBeforeSecond = notBeforeDay * SECONDS_PER_DAY;
+    }
+
+    void setNotAfter(LocalDate date) {
+        notAfter = date;
+        notAfterDay = date.toEpochDay();
+        notAfterSecond = notAfterDay * SECONDS_PER_DAY;
+    }
+
+    void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return false if the value is not a supported temporal type
+     */
+    boolean validate(FieldValidator<?> field, String holder, Object value, List<ValidationError> errors) {
+        long minSecond = maxAge == null ? Long.MIN_VALUE : Tick.epochSecond(clock) - maxAge.getSeconds();
+
+        if (value instanceof LocalDate d) {
+            long day = d.toEpochDay();
+            if (day < notBeforeDay) before(field, holder, errors, d, notBefore);
+            if (day > notAfterDay) after(field, holder, errors, d, notAfter);
+            if (maxAge != null) {
+                long minDay = Math.floorDiv(minSecond, SECONDS_PER_DAY);
+                if (day < minDay) before(field, holder, errors, d, LocalDate.ofEpochDay(minDay));
+            }
+            return true;
+        }
+
+        long second;
+        int nano;
+        if (value instanceof LocalDateTime d) {
+            second = d.toEpochSecond(ZoneOffset.UTC);
+            nano = d.getNano();
+        } else if (value instanceof ZonedDateTime d) {
+            second = d.toEpochSecond();
+            nano = d.getNano();
+        } else if (value instanceof OffsetDateTime d) {
+            second = d.toEpochSecond();
+            nano = d.getNano();
+        } else if (value instanceof Instant d) {
+            second = d.getEpochSecond();
+            nano = d.getNano();
+        } else
+            return false;
+
+        if (second < notBeforeSecond) before(field, holder, errors, value, notBefore);
+        if (second > notAfterSecond || (second == notAfterSecond && nano > 0)) after(field, holder, errors, value, notAfter);
+        if (maxAge != null) {
+            if (second < minSecond) before(field, holder, errors, value, Instant.ofEpochSecond(minSecond));
+        }
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof DateRange other && Objects.equals(notBefore, other.notBefore)
+                && Objects.equals(notAfter, other.notAfter) && Objects.equals(maxAge, other.maxAge)
+                && clock.equals(other.clock);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(notBefore, notAfter, maxAge, clock);
+    }
+
+    private void before(FieldValidator<?> field, String holder, List<ValidationError> errors, Object value, Object bound) {
+        field.addError(holder, errors, ErrorCode.DATE_BEFORE, value, bound);
+    }
+
+    private void after(FieldValidator<?> field, String holder, List<ValidationError> errors, Object value, Object bound) {
+        field.addError(holder, errors, ErrorCode.DATE_AFTER, value, bound);
+    }
+
+    /**
+     * Epoch second of a clock, read once per validation run. A run is opened by each top-level validation (and by
+     * each slice of a batch chunk) and covers its nested and element validators; outside a run the clock is read on
+     * every call.
+     */
+    static final class Tick {
+        private static final ThreadLocal<Tick> CURRENT = ThreadLocal.withInitial(Tick::new);
+
+        private int depth;
+        private Clock clock;
+        private long epochSecond;
+
+        static void enter() {
+            CURRENT.get().depth++;
+        }
+
+        static void exit() {
+            var tick = CURRENT.get();
+            if (--tick.depth == 0) tick.clock = null;
+        }
+
+        static long epochSecond(Clock clock) {
+            var tick = CURRENT.get();
+            if (tick.depth == 0) return read(clock);
+
+            if (!clock.equals(tick.clock)) {
+                tick.epochSecond = read(clock);
+                tick.clock = clock;
+            }
+            return tick.epochSecond;
+        }
+
+        private static long read(Clock clock) {
+            return Math.floorDiv(clock.millis(), 1000);
+        }
+    }
+}
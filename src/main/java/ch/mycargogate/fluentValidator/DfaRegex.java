@@ -0,0 +1,527 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Regular expression matched by a lazily built DFA, in time linear to the input length.
+ * <p>
+ * The supported subset is the regular part of {@link java.util.regex.Pattern} syntax: literals, {@code .},
+ * character classes with ranges and negation, {@code \d \w \s} and their negations, groups, alternation and the
+ * greedy or reluctant quantifiers {@code * + ? {n} {n,} {n,m}}. {@code ^} and {@code $} are accepted at the
+ * pattern ends only. Back references, lookarounds, possessive quantifiers, boundaries, Unicode properties, flags
+ * and nested classes are not supported and {@link #compile(String)} returns null for them.
+ * <p>
+ * The pattern is compiled to a Thompson NFA; DFA states are created on first use and cached. When the cache is
+ * full, new states are computed for each step without being cached, matching stays linear but gets slower.
+ * Instances are thread safe.
+ */
+final class DfaRegex implements RegexMatcher {
+    static final int MAX_NFA_STATES = 10_000;
+    static final int MAX_DFA_STATES = 2_000;
+    static final int MAX_CLASSES = 1_024;
+
+    private static final int CHAR = 0, SPLIT = 1, MATCH = 2;
+    private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+    private final String regex;
+
+    // NFA
+    private final int[] type, out1, out2;
+    private final int[][] ranges;
+
+    // Alphabet partitioned in classes of code points matched by the same NFA states
+    private final int[] boundaries;
+    private final int[] asciiClasses;
+    private final int classes;
+
+    private final Map<StateSet, DState> cache = new HashMap<>();
+    private final DState start;
+    private final DState dead;
+
+    private DfaRegex(String regex, Nfa nfa) {
+        this.regex = regex;
+        this.type = nfa.type.stream().mapToInt(Integer::intValue).toArray();
+        this.out1 = nfa.out1.stream().mapToInt(Integer::intValue).toArray();
+        this.out2 = nfa.out2.stream().mapToInt(Integer::intValue).toArray();
+        this.ranges = nfa.ranges.toArray(new int[0][]);
+
+        var points = new TreeSet<Integer>();
+        for (var r : ranges) {
+            if (r == null) continue;
+            for (int i = 0; i < r.length; i += 2) {
+                points.add(r[i]);
+                if (r[i + 1] < MAX_CODE_POINT) points.add(r[i + 1] + 1);
+            }
+        }
+        points.remove(0);
+        this.boundaries = points.stream().mapToInt(Integer::intValue).toArray();
+        this.classes = boundaries.length + 1;
+        if (classes > MAX_CLASSES) throw new Unsupported();
+
+        this.asciiClasses = new int[128];
+        for (int c = 0; c < 128; c++)
+            asciiClasses[c] = classOfSlow(c);
+
+        this.dead = state(new StateSet(new int[0]));
+        this.start = state(closure(new int[]{nfa.start}));
+    }
+
+    /**
+     * @return the DFA of the pattern, or null if the pattern uses features outside the supported subset
+     */
+    static DfaRegex compile(String regex) {
+        try {
+            var parser = new Parser(regex);
+            var node = parser.parse();
+            var nfa = new Nfa();
+            int match = nfa.add(MATCH, -1, -1, null);
+            nfa.start = nfa.compile(node, match);
+            return new DfaRegex(regex, nfa);
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean matches(CharSequence input) {
+        var d = start;
+        for (int i = 0, n = input.length(); i < n; ) {
+            int cp = Character.codePointAt(input, i);
+            i += Character.charCount(cp);
+            d = d.next(this, cp < 128 ? asciiClasses[cp] : classOfSlow(cp));
+            if (d == dead) return false;
+        }
+        return d.accept;
+    }
+
+    @Override
+    public String pattern() {
+        return regex;
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    private int classOfSlow(int cp) {
+        int lo = 0, hi = boundaries.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (boundaries[mid] <= cp) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private int representative(int cls) {
+        return cls == 0 ? 0 : boundaries[cls - 1];
+    }
+
+    // ==== DFA construction ====
+
+    private synchronized DState step(DState from, int cls) {
+        var known = from.transitions.get(cls);
+        if (known != null) return known;
+
+        int cp = representative(cls);
+        var targets = new ArrayList<Integer>();
+        for (int s : from.set.states) {
+            if (type[s] == CHAR && contains(ranges[s], cp))
+                targets.add(out1[s]);
+        }
+        var set = closure(targets.stream().mapToInt(Integer::intValue).toArray());
+
+        var cached = cache.get(set);
+        if (cached != null) {
+            from.transitions.set(cls, cached);
+            return cached;
+        }
+        if (cache.size() >= MAX_DFA_STATES)
+            return new DState(set, isAccepting(set), classes);
+
+        var next = state(set);
+        from.transitions.set(cls, next);
+        return next;
+    }
+
+    private DState state(StateSet set) {
+        return cache.computeIfAbsent(set, s -> new DState(s, isAccepting(s), classes));
+    }
+
+    private boolean isAccepting(StateSet set) {
+        for (int s : set.states)
+            if (type[s] == MATCH) return true;
+        return false;
+    }
+
+    /**
+     * Epsilon closure, keeping the consuming and the match states only.
+     */
+    private StateSet closure(int[] from) {
+        var seen = new BitSet(type.length);
+        var stack = new ArrayDeque<Integer>();
+        var result = new BitSet(type.length);
+        for (int s : from) stack.push(s);
+
+        while (!stack.isEmpty()) {
+            int s = stack.pop();
+            if (seen.get(s)) continue;
+            seen.set(s);
+            if (type[s] == SPLIT) {
+                stack.push(out2[s]);
+                stack.push(out1[s]);
+            } else
+                result.set(s);
+        }
+        return new StateSet(result.stream().toArray());
+    }
+
+    private static boolean contains(int[] ranges, int cp) {
+        for (int i = 0; i < ranges.length; i += 2)
+            if (cp >= ranges[i] && cp <= ranges[i + 1]) return true;
+        return false;
+    }
+
+    private record StateSet(int[] states) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet other && Arrays.equals(states, other.states);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(states);
+        }
+    }
+
+    private static final class DState {
+        final StateSet set;
+        final boolean accept;
+        final AtomicReferenceArray<DState> transitions;
+
+        DState(StateSet set, boolean accept, int classes) {
+            this.set = set;
+            this.accept = accept;
+            this.transitions = new AtomicReferenceArray<>(classes);
+        }
+
+        DState next(DfaRegex dfa, int cls) {
+            var next = transitions.get(cls);
+            return next != null ? next : dfa.step(this, cls);
+        }
+    }
+
+    // ==== NFA ====
+
+    private static final class Nfa {
+        final List<Integer> type = new ArrayList<>(), out1 = new ArrayList<>(), out2 = new ArrayList<>();
+        final List<int[]> ranges = new ArrayList<>();
+        int start;
+
+        int add(int t, int o1, int o2, int[] r) {
+            if (type.size() >= MAX_NFA_STATES) throw new Unsupported();
+            type.add(t);
+            out1.add(o1);
+            out2.add(o2);
+            ranges.add(r);
+            return type.size() - 1;
+        }
+
+        /**
+         * Compiles the node in front of the next state, returns the entry state.
+         */
+        int compile(Node node, int next) {
+            if (node instanceof CharClass c)
+                return add(CHAR, next, -1, c.ranges);
+
+            if (node instanceof Concat c) {
+                int entry = next;
+                for (int i = c.nodes.size() - 1; i >= 0; i--)
+                    entry = compile(c.nodes.get(i), entry);
+                return entry;
+            }
+
+            if (node instanceof Alternation a) {
+                int entry = compile(a.nodes.get(a.nodes.size() - 1), next);
+                for (int i = a.nodes.size() - 2; i >= 0; i--)
+                    entry = add(SPLIT, compile(a.nodes.get(i), next), entry, null);
+                return entry;
+            }
+
+            if (node instanceof Repeat r) {
+                int entry;
+                if (r.max < 0) {
+                    int loop = add(SPLIT, -1, next, null);
+                    out1.set(loop, compile(r.node, loop));
+                    entry = loop;
+                } else {
+                    entry = next;
+                    for (int i = r.min; i < r.max; i++)
+                        entry = add(SPLIT, compile(r.node, entry), next, null);
+                }
+                for (int i = 0; i < r.min; i++)
+                    entry = compile(r.node, entry);
+                return entry;
+            }
+
+            throw new IllegalStateException("Unknown node " + node);
+        }
+    }
+
+    // ==== Parser ====
+
+    private interface Node {}
+
+    private record CharClass(int[] ranges) implements Node {}
+
+    private record Concat(List<Node> nodes) implements Node {}
+
+    private record Alternation(List<Node> nodes) implements Node {}
+
+    private record Repeat(Node node, int min, int max) implements Node {}
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Parser {
+        private static final int[] DIGIT = {'0', '9'};
+        private static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+        private static final int[] SPACE = {'\t', '\r', ' ', ' '};
+        private static final int[] LINE_TERMINATORS = {'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029};
+
+        private final String regex;
+        private int pos;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() {
+            if (peek('^')) pos++;
+            var node = alternation();
+            if (peek('$')) pos++;
+            if (pos != regex.length()) throw new Unsupported();
+            return node;
+        }
+
+        private Node alternation() {
+            var nodes = new ArrayList<Node>();
+            nodes.add(concat());
+            while (peek('|')) {
+                pos++;
+                nodes.add(concat());
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Alternation(nodes);
+        }
+
+        private Node concat() {
+            var nodes = new ArrayList<Node>();
+            while (pos < regex.length() && !peek('|') && !peek(')')) {
+                if (peek('$') && pos == regex.length() - 1) break;
+                nodes.add(quantified(atom()));
+            }
+            return new Concat(nodes);
+        }
+
+        private Node quantified(Node atom) {
+            while (pos < regex.length()) {
+                char c = regex.charAt(pos);
+                int min, max;
+                if (c == '*') { min = 0; max = -1; pos++; }
+                else if (c == '+') { min = 1; max = -1; pos++; }
+                else if (c == '?') { min = 0; max = 1; pos++; }
+                else if (c == '{') {
+                    pos++;
+                    min = number();
+                    max = min;
+                    if (peek(',')) {
+                        pos++;
+                        max = peek('}') ? -1 : number();
+                    }
+                    expect('}');
+                    if (max >= 0 && max < min) throw new Unsupported();
+                } else
+                    return atom;
+
+                // Reluctant quantifiers accept the same strings, possessive ones do not
+                if (peek('?')) pos++;
+                else if (peek('+')) throw new Unsupported();
+                atom = new Repeat(atom, min, max);
+            }
+            return atom;
+        }
+
+        private int number() {
+            int start = pos;
+            while (pos < regex.length() && Character.isDigit(regex.charAt(pos)) && pos - start < 4) pos++;
+            if (pos == start || (pos < regex.length() && Character.isDigit(regex.charAt(pos)))) throw new Unsupported();
+            return Integer.parseInt(regex, start, pos, 10);
+        }
+
+        private Node atom() {
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (peek('?')) {
+                        if (!regex.startsWith("?:", pos)) throw new Unsupported();
+                        pos += 2;
+                    }
+                    var group = alternation();
+                    expect(')');
+                    return group;
+                case '[':
+                    return new CharClass(charClass());
+                case '.':
+                    return new CharClass(negate(LINE_TERMINATORS));
+                case '\\':
+                    return new CharClass(escape());
+                case '^', '$', '*', '+', '?', '{':
+                    throw new Unsupported();
+                default:
+                    pos--;
+                    int cp = regex.codePointAt(pos);
+                    pos += Character.charCount(cp);
+                    return new CharClass(new int[]{cp, cp});
+            }
+        }
+
+        private int[] charClass() {
+            boolean negated = peek('^');
+            if (negated) pos++;
+            if (peek(']')) throw new Unsupported();
+
+            var items = new ArrayList<int[]>();
+            while (!peek(']')) {
+                if (pos >= regex.length() || peek('[') || regex.startsWith("&&", pos)) throw new Unsupported();
+
+                int[] item;
+                if (peek('\\')) {
+                    pos++;
+                    item = escape();
+                } else {
+                    int cp = regex.codePointAt(pos);
+                    pos += Character.charCount(cp);
+                    item = new int[]{cp, cp};
+                }
+
+                if (peek('-') && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    if (item.length != 2 || item[0] != item[1] || peek('[')) throw new Unsupported();
+                    int to;
+                    if (peek('\\')) {
+                        pos++;
+                        var end = escape();
+                        if (end.length != 2 || end[0] != end[1]) throw new Unsupported();
+                        to = end[0];
+                    } else {
+                        to = regex.codePointAt(pos);
+                        pos += Character.charCount(to);
+                    }
+                    if (to < item[0]) throw new Unsupported();
+                    item = new int[]{item[0], to};
+                }
+                items.add(item);
+            }
+            pos++;
+
+            var ranges = normalize(items);
+            return negated ? negate(ranges) : ranges;
+        }
+
+        private int[] escape() {
+            if (pos >= regex.length()) throw new Unsupported();
+            char c = regex.charAt(pos++);
+            switch (c) {
+                case 'd': return DIGIT;
+                case 'D': return negate(DIGIT);
+                case 'w': return WORD;
+                case 'W': return negate(WORD);
+                case 's': return SPACE;
+                case 'S': return negate(SPACE);
+                case 't': return single('\t');
+                case 'n': return single('\n');
+                case 'r': return single('\r');
+                case 'f': return single('\f');
+                case 'a': return single('\u0007');
+                case 'e': return single('\u001B');
+                case 'x': return single(hex(2));
+                case 'u': return single(hex(4));
+                default:
+                    if (Character.isLetterOrDigit(c)) throw new Unsupported();
+                    return single(c);
+            }
+        }
+
+        private int hex(int digits) {
+            if (pos + digits > regex.length()) throw new Unsupported();
+            try {
+                int value = Integer.parseInt(regex, pos, pos + digits, 16);
+                pos += digits;
+                return value;
+            } catch (NumberFormatException e) {
+                throw new Unsupported();
+            }
+        }
+
+        private static int[] single(int cp) {
+            return new int[]{cp, cp};
+        }
+
+        private static int[] normalize(List<int[]> items) {
+            var all = new ArrayList<int[]>();
+            for (var item : items)
+                for (int i = 0; i < item.length; i += 2)
+                    all.add(new int[]{item[i], item[i + 1]});
+            all.sort(Comparator.comparingInt(r -> r[0]));
+
+            var merged = new ArrayList<int[]>();
+            for (var r : all) {
+                if (!merged.isEmpty() && r[0] <= merged.get(merged.size() - 1)[1] + 1) {
+                    var last = merged.get(merged.size() - 1);
+                    last[1] = Math.max(last[1], r[1]);
+                } else
+                    merged.add(r);
+            }
+
+            int[] result = new int[merged.size() * 2];
+            for (int i = 0; i < merged.size(); i++) {
+                result[2 * i] = merged.get(i)[0];
+                result[2 * i + 1] = merged.get(i)[1];
+            }
+            return result;
+        }
+
+        private static int[] negate(int[] ranges) {
+            var result = new ArrayList<Integer>();
+            int next = 0;
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] > next) {
+                    result.add(next);
+                    result.add(ranges[i] - 1);
+                }
+                next = ranges[i + 1] + 1;
+            }
+            if (next <= MAX_CODE_POINT) {
+                result.add(next);
+                result.add(MAX_CODE_POINT);
+            }
+            return result.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private boolean peek(char c) {
+            return pos < regex.length() && regex.charAt(pos) == c;
+        }
+
+        private void expect(char c) {
+            if (!peek(c)) throw new Unsupported();
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ch.mycargogate.fluentValidator;
+
+/**
+ * Check computed over all the elements of a collection, during the element pass of {@link CollectionValidator}.
+ */
+interface ElementAggregate<E> {
+
+    /**
+     * @param parent object holding the collection, null if unknown
+     * @return the state of one validation of a collection
+     */
+    Accumulator<E> start(Object parent, int size);
+
+    /**
+     * @return true if the check reads other fields of the parent, see {@link FluentValidator#revalidate}
+     */
+    default boolean readsParent() {
+        return false;
+    }
+
+    interface Accumulator<E> {
+        void accept(RuleContext context, int index, E element);
+
+        void finish(RuleContext context);
+    }
+}
@@ -0,0 +1,165 @@
+package ch.mycargogate.fluentValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Immutable set of allowed values, built once for enum-membership rules.
+ * <p>
+ * Values are stored in an open-addressing table (load factor at most 1/2) with their hashes, so a lookup is
+ * usually a single probe and never allocates, including case-insensitive lookups. Large code lists can be loaded
+ * from a file or a classpath resource, one value per line ({@code #} starts a comment).
+ * <p>
+ * {@link #toString()} renders a truncated list for error messages. Two sets are equal when they hold the same values
+ * in the same order with the same case sensitivity, so a redeclared {@code inEnum} rule replaces the inherited one.
+ */
+final class EnumValues {
+    static final int MAX_DISPLAYED_VALUES = 10;
+
+    private final String[] values;
+    private final String[] table;
+    private final int[] hashes;
+    private final int mask;
+    private final boolean ignoreCase;
+    private final String display;
+    // classpath resource of the values, null when not loaded from a resource
+    private final String resource;
+
+    private EnumValues(Collection<String> values, boolean ignoreCase, String resource) {
+        this.ignoreCase = ignoreCase;
+        this.resource = resource;
+
+        var distinct = new ArrayList<String>(values.size());
+        int capacity = Integer.highestOneBit(Math.max(2, values.size() * 2 - 1)) << 1;
+        this.table = new String[capacity];
+        this.hashes = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (var value : values) {
+            Objects.requireNonNull(value, "enum values cannot be null");
+            if (!contains(value)) {
+                insert(value);
+                distinct.add(value);
+            }
+        }
+
+        this.values = distinct.toArray(new String[0]);
+        this.display = display(this.values);
+    }
+
+    static EnumValues of(Collection<String> values, boolean ignoreCase) {
+        return new EnumValues(values, ignoreCase, null);
+    }
+
+    static EnumValues fromFile(Path path, boolean ignoreCase) {
+        try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return new EnumValues(readValues(reader), ignoreCase, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read enum values from " + path, e);
+        }
+    }
+
+    static EnumValues fromResource(String resource, boolean ignoreCase) {
+        try (InputStream is = Objects.requireNonNull(
+                Thread.currentThread().getContextClassLoader().getResourceAsStream(resource),
+                "Resource not found: " + resource);
+             var reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            return new EnumValues(readValues(reader), ignoreCase, resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read enum values from " + resource, e);
+        }
+    }
+
+    String getResource() {
+        return resource;
+    }
+
+    private static List<String> readValues(BufferedReader reader) throws IOException {
+        var values = new ArrayList<String>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var value = line.strip();
+            if (!value.isEmpty() && !value.startsWith("#"))
+                values.add(value);
+        }
+        return values;
+    }
+
+    boolean contains(String value) {
+        int hash = hash(value);
+        for (int i = spread(hash) & mask; table[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == hash && (ignoreCase ? table[i].equalsIgnoreCase(value) : table[i].equals(value)))
+                return true;
+        }
+        return false;
+    }
+
+    private void insert(String value) {
+        int hash = hash(value);
+        int i = spread(hash) & mask;
+        while (table[i] != null)
+            i = (i + 1) & mask;
+        table[i] = value;
+        hashes[i] = hash;
+    }
+
+    private int hash(String value) {
+        if (!ignoreCase) return value.hashCode();
+
+        // Consistent with String.equalsIgnoreCase
+        int h = 0;
+        for (int i = 0; i < value.length(); i++)
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+        return h;
+    }
+
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    List<String> values() {
+        return List.of(values);
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    private static String display(String[] values) {
+        var sb = new StringBuilder("[");
+        int shown = Math.min(values.length, MAX_DISPLAYED_VALUES);
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(values[i]);
+        }
+        if (values.length > shown)
+            sb.append(", ... (").append(values.length - shown).append(" more)");
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof EnumValues other && ignoreCase == other.ignoreCase && Arrays.equals(values, other.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(values) + Boolean.hashCode(ignoreCase);
+    }
+
+    @Override
+    public String toString() {
+        return display;
+    }
+}
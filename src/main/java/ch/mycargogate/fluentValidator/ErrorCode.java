@@ -5,6 +5,8 @@ public class ErrorCode {
     public static final String NOT_BLANK = "NOT_BLANK";
     public static final String LENGTH_LOWER_THAN = "LENGTH_LT";
     public static final String LENGTH_GREATER_THAN = "LENGTH_GT";
+    public static final String BYTE_LENGTH_GREATER_THAN = "BYTE_LENGTH_GT";
+    public static final String INVALID_CHARACTER = "INVALID_CHARACTER";
     public static final String REGEX_DONT_MATCH = "NO_MATCH_REGEX";
     public static final String MUST_BE_ONE_OF = "MUST_BE_ONE_OF";
     public static final String DATE_BEFORE = "DATE_BEFORE";
@@ -12,6 +14,14 @@ public class ErrorCode {
     public static final String SIZE_LT = "SIZE_LT";
     public static final String SIZE_GT = "SIZE_GT";
     public static final String FORBIDDEN = "FORBIDDEN";
+    public static final String DUPLICATE = "DUPLICATE";
+    public static final String DUPLICATE_IN_BATCH = "DUPLICATE_IN_BATCH";
+    public static final String NOT_IN_REFERENCE = "NOT_IN_REFERENCE";
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String COLLAPSED = "COLLAPSED";
+    public static final String AGGREGATE_LT = "AGGREGATE_LT";
+    public static final String AGGREGATE_GT = "AGGREGATE_GT";
+    public static final String AGGREGATE_NE = "AGGREGATE_NE";
     public static String LOWER_THAN_MIN = "LT_MIN";
     public static String GREATER_THAN_MAX = "GT_MAX";
 
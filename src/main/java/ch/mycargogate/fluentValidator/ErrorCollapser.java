@@ -0,0 +1,209 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+
+/**
+ * Groups the element errors of a collection by code, holder and field, see {@link CollapsedError}. Errors reported
+ * after the element pass, e.g. by aggregates, are kept as they are.
+ * <p>
+ * A group keeps its first error and the ranges of the elements in error. The message arguments of the first error
+ * are shared by the group: an argument position only gets a column of per-error values once an error differs from
+ * the first at that position, e.g. the value in "Value X cannot be lower than Y" but not the bound. The errors are
+ * not formatted.
+ */
+final class ErrorCollapser {
+    record Key(String code, String holder, String field) {
+    }
+
+    /**
+     * Receives the element index and the message arguments (or the message, for an error without arguments) of each
+     * error of a group, in the order of the errors.
+     */
+    interface ElementErrorConsumer {
+        void accept(int element, Object[] args, String message);
+    }
+
+    static final class Group {
+        final ValidationError first;
+        // message arguments of the first error, or its message when it has none
+        private final Object[] shared;
+        private final String sharedMessage;
+        int count;
+        // ranges of element indexes, start inclusive and end exclusive
+        int[] ranges = new int[2];
+        int rangeCount;
+        // errors (by number in the group) reported on the same element as the previous error
+        private int[] repeats = new int[0];
+        private int repeatCount;
+        // values of the argument positions differing from the first error, from the first error differing there
+        private Object[][] columns;
+        private int[] columnStarts;
+        // errors whose arguments do not have the shape of the first error's, with their arguments or message
+        private int[] outliers = new int[0];
+        private Object[] outlierDetails = new Object[0];
+        private int outlierCount;
+
+        Group(ValidationError first) {
+            this.first = first;
+            this.shared = first.getMessageArgs();
+            this.sharedMessage = shared == null ? first.getMessage() : null;
+            if (shared != null) {
+                columns = new Object[shared.length][];
+                columnStarts = new int[shared.length];
+            }
+        }
+
+        void add(int index, ValidationError error) {
+            int number = count++;
+            addDetails(number, error);
+
+            if (rangeCount > 0) {
+                int end = ranges[2 * rangeCount - 1];
+                // another error of the same element
+                if (index < end) {
+                    if (repeatCount == repeats.length) repeats = Arrays.copyOf(repeats, Math.max(4, repeatCount * 2));
+                    repeats[repeatCount++] = number;
+                    return;
+                }
+                if (index == end) {
+                    ranges[2 * rangeCount - 1]++;
+                    return;
+                }
+            }
+
+            if (2 * rangeCount == ranges.length) ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            ranges[2 * rangeCount] = index;
+            ranges[2 * rangeCount + 1] = index + 1;
+            rangeCount++;
+        }
+
+        private void addDetails(int number, ValidationError error) {
+            var args = error.getMessageArgs();
+            if (shared == null ? args != null || !Objects.equals(sharedMessage, error.getMessage())
+                    : args == null || args.length != shared.length) {
+                if (outlierCount == outliers.length) {
+                    outliers = Arrays.copyOf(outliers, Math.max(4, outlierCount * 2));
+                    outlierDetails = Arrays.copyOf(outlierDetails, outliers.length);
+                }
+                outliers[outlierCount] = number;
+                outlierDetails[outlierCount++] = args != null ? args : error.getMessage();
+                return;
+            }
+            if (shared == null) return;
+
+            for (int p = 0; p < args.length; p++) {
+                var column = columns[p];
+                if (column == null) {
+                    if (Objects.equals(args[p], shared[p])) continue;
+                    columns[p] = column = new Object[4];
+                    columnStarts[p] = number;
+                }
+
+                int i = number - columnStarts[p];
+                if (i >= column.length) columns[p] = column = Arrays.copyOf(column, Math.max(i + 1, column.length * 2));
+                column[i] = args[p];
+            }
+        }
+
+        /**
+         * Trims the arrays to their content, once all the errors are added.
+         */
+        void trim() {
+            ranges = Arrays.copyOf(ranges, 2 * rangeCount);
+            repeats = Arrays.copyOf(repeats, repeatCount);
+            outliers = Arrays.copyOf(outliers, outlierCount);
+            outlierDetails = Arrays.copyOf(outlierDetails, outlierCount);
+            if (columns != null) {
+                for (int p = 0; p < columns.length; p++) {
+                    if (columns[p] != null) columns[p] = Arrays.copyOf(columns[p], count - columnStarts[p]);
+                }
+            }
+        }
+
+        /**
+         * Rebuilds the element index and the details of each error.
+         */
+        void forEach(ElementErrorConsumer consumer) {
+            int range = 0, element = ranges[0], repeat = 0, outlier = 0;
+
+            for (int number = 0; number < count; number++) {
+                if (repeat < repeats.length && repeats[repeat] == number)
+                    repeat++;
+                else if (number > 0 && ++element == ranges[range + 1]) {
+                    range += 2;
+                    element = ranges[range];
+                }
+
+                if (outlier < outliers.length && outliers[outlier] == number) {
+                    var details = outlierDetails[outlier++];
+                    if (details instanceof Object[] args) consumer.accept(element, args, null);
+                    else consumer.accept(element, null, (String) details);
+                } else if (shared == null)
+                    consumer.accept(element, null, sharedMessage);
+                else
+                    consumer.accept(element, args(number), null);
+            }
+        }
+
+        private Object[] args(int number) {
+            Object[] args = shared;
+            for (int p = 0; p < columns.length; p++) {
+                if (columns[p] == null || number < columnStarts[p]) continue;
+                if (args == shared) args = shared.clone();
+                args[p] = columns[p][number - columnStarts[p]];
+            }
+            return args;
+        }
+    }
+
+    private final String holder;
+    private final String fieldName;
+    private final Map<Key, Group> groups = new LinkedHashMap<>();
+    private final List<ValidationError> direct = new ArrayList<>();
+
+    /**
+     * @param holder    holder of the collection, null if unknown
+     * @param fieldName name of the collection field
+     */
+    ErrorCollapser(String holder, String fieldName) {
+        this.holder = holder;
+        this.fieldName = fieldName;
+    }
+
+    boolean hasErrors() {
+        return !groups.isEmpty() || !direct.isEmpty();
+    }
+
+    /**
+     * Moves the errors of the element to their groups.
+     *
+     * @param index index of the element, -1 for errors reported after the element pass
+     */
+    void add(int index, List<ValidationError> elementErrors) {
+        for (var error : elementErrors) {
+            if (index < 0) {
+                direct.add(error);
+                continue;
+            }
+
+            var key = new Key(error.getCode(), error.getHolder(), error.getField());
+            var group = groups.get(key);
+            if (group == null) groups.put(key, group = new Group(error));
+            group.add(index, error);
+        }
+        elementErrors.clear();
+    }
+
+    void flush(List<ValidationError> errors) {
+        for (var group : groups.values()) {
+            if (group.count == 1) {
+                errors.add(group.first);
+                continue;
+            }
+
+            group.trim();
+            errors.add(new CollapsedError(group, holder, fieldName));
+        }
+        errors.addAll(direct);
+    }
+}
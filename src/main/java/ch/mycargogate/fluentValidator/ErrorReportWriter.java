@@ -0,0 +1,254 @@
+package ch.mycargogate.fluentValidator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Formatter;
+import java.util.List;
+
+/**
+ * Streams validation errors to a JSON or CSV report, one error at a time, so that large reports are written in
+ * constant memory.
+ * <p>
+ * JSON reports are an array of error objects ({@code holder}, {@code field}, {@code code}, {@code message}, and
+ * {@code count} for a {@link CollapsedError}); CSV reports have a header line and one line per error. The errors of
+ * a {@link ColumnarErrors} are written from its columns, holder and message are composed in a buffer reused by all
+ * errors. Messages of the rules are formatted into that buffer, without a string cached on the error.
+ * <p>
+ * The target is flushed but not closed by {@link #close()}; the writer is not thread-safe.
+ * <pre>
+ * try (var report = ErrorReportWriter.csv(writer)) {
+ *     for (var order : orders)
+ *         report.write(validator.validate(order));
+ * }
+ * </pre>
+ */
+public abstract class ErrorReportWriter implements Closeable {
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    private final StringBuilder holder = new StringBuilder();
+    private final StringBuilder message = new StringBuilder();
+    private final Formatter formatter = new Formatter(message);
+    private final FieldPath fieldPath = new FieldPath();
+
+    // number of the record of the errors written, -1 if not written
+    long record = -1;
+
+    ErrorReportWriter() {
+    }
+
+    /**
+     * @return a writer of a JSON array of errors to the generator
+     */
+    public static ErrorReportWriter json(JsonGenerator generator) throws IOException {
+        return new Json(generator);
+    }
+
+    public static ErrorReportWriter json(OutputStream out) throws IOException {
+        return new Json(JSON_FACTORY.createGenerator(out));
+    }
+
+    public static ErrorReportWriter json(Writer out) throws IOException {
+        return new Json(JSON_FACTORY.createGenerator(out));
+    }
+
+    /**
+     * @return a writer of CSV lines {@code holder,field,code,message} to the writer
+     */
+    public static ErrorReportWriter csv(Writer out) throws IOException {
+        return new Csv(out, false, true);
+    }
+
+    /**
+     * CSV lines {@code record,holder,field,code,message}, for the error log of {@link BatchValidator}.
+     *
+     * @param header false when appending to an existing log
+     */
+    static ErrorReportWriter errorLog(Writer out, boolean header) throws IOException {
+        return new Csv(out, true, header);
+    }
+
+    /**
+     * Writes the result as an object {@code valid}, {@code incomplete} and the array of its {@code errors}.
+     */
+    public static void writeJson(ValidationResult result, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeBooleanField("valid", result.isValid());
+        generator.writeBooleanField("incomplete", result.isIncomplete());
+        generator.writeFieldName("errors");
+
+        var errors = new Json(generator);
+        errors.write(result.getErrors());
+        errors.close();
+
+        generator.writeEndObject();
+    }
+
+    public void write(ValidationResult result) throws IOException {
+        write(result.getErrors());
+    }
+
+    public void write(List<? extends ValidationError> errors) throws IOException {
+        if (errors instanceof ColumnarErrors columnar) {
+            for (int i = 0; i < columnar.size(); i++) {
+                holder.setLength(0);
+                message.setLength(0);
+                writeError(columnar.appendHolder(i, holder) ? holder : null, columnar.getField(i),
+                        columnar.getCode(i), columnar.appendMessage(i, formatter) ? message : null, columnar.getCount(i));
+            }
+            return;
+        }
+
+        for (var error : errors)
+            write(error);
+    }
+
+    /**
+     * Writes the errors of the numbered record, the number is only written by error logs.
+     */
+    void write(long record, List<? extends ValidationError> errors) throws IOException {
+        this.record = record;
+        try {
+            write(errors);
+        } finally {
+            this.record = -1;
+        }
+    }
+
+    /**
+     * Writes the error; a message not formatted yet is formatted into a buffer, it is not kept by the error.
+     */
+    public void write(ValidationError error) throws IOException {
+        int count = error instanceof CollapsedError collapsed ? collapsed.getCount() : 1;
+        var args = error.getMessageArgs();
+        if (args == null) {
+            writeError(error.getHolder(), error.getField(), error.getCode(), error.getMessage(), count);
+            return;
+        }
+
+        var formatArgs = new Object[args.length + 1];
+        formatArgs[0] = fieldPath.set(error.getHolder(), error.getField());
+        System.arraycopy(args, 0, formatArgs, 1, args.length);
+        message.setLength(0);
+        ValidatorMessages.appendMessage(formatter, error.getCode(), formatArgs);
+        writeError(error.getHolder(), error.getField(), error.getCode(), message, count);
+    }
+
+    abstract void writeError(CharSequence holder, String field, String code, CharSequence message, int count)
+            throws IOException;
+
+    private static final class Json extends ErrorReportWriter {
+        private final JsonGenerator generator;
+        private char[] chars = new char[256];
+
+        Json(JsonGenerator generator) throws IOException {
+            this.generator = generator;
+            generator.writeStartArray();
+        }
+
+        @Override
+        void writeError(CharSequence holder, String field, String code, CharSequence message, int count)
+                throws IOException {
+            generator.writeStartObject();
+            writeField("holder", holder);
+            writeField("field", field);
+            writeField("code", code);
+            writeField("message", message);
+            if (count > 1) generator.writeNumberField("count", count);
+            generator.writeEndObject();
+        }
+
+        private void writeField(String name, CharSequence value) throws IOException {
+            if (value == null) return;
+
+            generator.writeFieldName(name);
+            if (value instanceof String string) {
+                generator.writeString(string);
+                return;
+            }
+
+            int length = value.length();
+            if (length > chars.length) chars = new char[Math.max(length, chars.length * 2)];
+            ((StringBuilder) value).getChars(0, length, chars, 0);
+            generator.writeString(chars, 0, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.flush();
+        }
+    }
+
+    private static final class Csv extends ErrorReportWriter {
+        private final Writer out;
+        private final boolean recordColumn;
+        private final StringBuilder line = new StringBuilder(256);
+        private char[] chars = new char[256];
+
+        Csv(Writer out, boolean recordColumn, boolean header) throws IOException {
+            this.out = out;
+            this.recordColumn = recordColumn;
+            if (header) out.write(recordColumn ? "record,holder,field,code,message\n" : "holder,field,code,message\n");
+        }
+
+        @Override
+        void writeError(CharSequence holder, String field, String code, CharSequence message, int count)
+                throws IOException {
+            line.setLength(0);
+            if (recordColumn) {
+                if (record >= 0) line.append(record);
+                line.append(',');
+            }
+            appendValue(holder);
+            line.append(',');
+            appendValue(field);
+            line.append(',');
+            appendValue(code);
+            line.append(',');
+            appendValue(message);
+            line.append('\n');
+
+            int length = line.length();
+            if (length > chars.length) chars = new char[Math.max(length, chars.length * 2)];
+            line.getChars(0, length, chars, 0);
+            out.write(chars, 0, length);
+        }
+
+        // RFC 4180: values with a separator, a quote or a line break are quoted, quotes are doubled
+        private void appendValue(CharSequence value) {
+            if (value == null) return;
+
+            int length = value.length();
+            boolean quote = false;
+            for (int i = 0; i < length && !quote; i++) {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                line.append(value);
+                return;
+            }
+
+            line.append('"');
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c == '"') line.append('"');
+                line.append(c);
+            }
+            line.append('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -6,17 +6,24 @@ import java.lang.reflect.Method;
 class FieldName {
 
     public static <T> String nameOf(GetterRef<T, ?> ref) {
+        return nameOf(lambdaOf(ref));
+    }
+
+    static String nameOf(SerializedLambda lambda) {
+        String methodName = lambda.getImplMethodName();
+        if (methodName.startsWith("get")) {
+            return Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
+        } else if (methodName.startsWith("is")) {
+            return Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
+        }
+        throw new IllegalArgumentException("Not a getter: " + methodName);
+    }
+
+    static SerializedLambda lambdaOf(GetterRef<?, ?> ref) {
         try {
             Method writeReplace = ref.getClass().getDeclaredMethod("writeReplace");
             writeReplace.setAccessible(true);
-            SerializedLambda lambda = (SerializedLambda) writeReplace.invoke(ref);
-            String methodName = lambda.getImplMethodName();
-            if (methodName.startsWith("get")) {
-                return Character.toLowerCase(methodName.charAt(3)) + methodName.substring(4);
-            } else if (methodName.startsWith("is")) {
-                return Character.toLowerCase(methodName.charAt(2)) + methodName.substring(3);
-            }
-            throw new IllegalArgumentException("Not a getter: " + methodName);
+            return (SerializedLambda) writeReplace.invoke(ref);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,31 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.Formattable;
+import java.util.Formatter;
+
+/**
+ * Full field name passed as first message argument, see {@link BaseValidator#fullFieldName}. It appends its holder
+ * and field to the formatter, so a message is formatted into a buffer without building the name first.
+ * <p>
+ * Instances are reused for each formatted message; they are not thread-safe.
+ */
+final class FieldPath implements Formattable {
+    private CharSequence holder;
+    private String field;
+
+    FieldPath set(CharSequence holder, String field) {
+        this.holder = holder;
+        this.field = field;
+        return this;
+    }
+
+    @Override
+    public void formatTo(Formatter formatter, int flags, int width, int precision) {
+        var out = (StringBuilder) formatter.out();
+        if (holder == null) out.append(field == null ? "object" : field);
+        else {
+            out.append(holder);
+            if (field != null) out.append('.').append(field);
+        }
+    }
+}
@@ -5,10 +5,11 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.function.Predicate;
+import java.util.function.*;
 
 // ==== FieldRule ====
 
@@ -20,21 +21,26 @@ class FieldValidator<F> extends ValueValidator<F> {
     public static String EMAIL_CODE = "INVALID_EMAIL";
 
     private boolean forbidden = false;
-    private Double min, max;
+    private Number min, max;
     private Integer minLength, maxLength;
+    private Integer minCodePoints, maxCodePoints, maxUtf8Bytes;
+    private CharacterSet charset;
     private String regex;
+    private RegexEngine regexEngine;
     private boolean notBlank = false;
-    private Set<String> enumValues;
-    private ZonedDateTime notBefore, notAfter;
+    private EnumValues enumValues;
+    private DateRange dateRange;
     private FluentValidator<F> validator = null;
-    private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy - HH:mm:ss Z");
 
     // Cached values
-    private Method getter;
+    private RegexMatcher matcher;
 
     // Error code can be customized for specific regex.
     private String customCode;
 
+    // Range rules reading the field with a typed accessor
+    private final List<NumericRange<Object>> numericRanges = new ArrayList<>();
+
     FieldValidator(Method getter) {
         super(getter);
     }
@@ -43,7 +49,35 @@ class FieldValidator<F> extends ValueValidator<F> {
         super(clazz, fieldName);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    void validateObject(String holder, Object object, List<ValidationError> errors) {
+        validate(holder, (F) object, errors);
+    }
+
+    @Override
+    boolean sameChecks(BaseValidator<?> other) {
+        if (!super.sameChecks(other)) return false;
+
+        var o = (FieldValidator<?>) other;
+        return forbidden == o.forbidden && notBlank == o.notBlank && Objects.equals(min, o.min)
+                && Objects.equals(max, o.max) && Objects.equals(minLength, o.minLength)
+                && Objects.equals(maxLength, o.maxLength) && Objects.equals(minCodePoints, o.minCodePoints)
+                && Objects.equals(maxCodePoints, o.maxCodePoints) && Objects.equals(maxUtf8Bytes, o.maxUtf8Bytes)
+                && Objects.equals(charset, o.charset) && Objects.equals(regex, o.regex) && regexEngine == o.regexEngine
+                && Objects.equals(customCode, o.customCode) && Objects.equals(enumValues, o.enumValues)
+                && Objects.equals(dateRange, o.dateRange) && validator == o.validator && numericRanges.equals(o.numericRanges);
+    }
+
     void validate(String holder, F object, List<ValidationError> errors) {
+        int before = errors.size();
+        for (var range : numericRanges)
+            range.validate(this, holder, object, errors);
+        if (isFailFast() && errors.size() > before) return;
+
+        // Typed accessors only, the value is not read by reflection
+        if (!usesValue()) return;
+
         try {
             @SuppressWarnings("unchecked")
             F value = (F) getGetter((Class<F>) object.getClass()).invoke(object);
@@ -56,102 +90,127 @@ class FieldValidator<F> extends ValueValidator<F> {
 
     @Override
     protected void doValidate(String holder, F value, List<ValidationError> errors) {
+        if (isFailFast()) {
+            doValidateFailFast(holder, value, errors);
+            return;
+        }
+
         super.doValidate(holder, value, errors);
 
         // optional null value
         if(value == null) return;
 
+        checkValue(holder, value, errors);
+        checkRegex(holder, value, errors);
+        checkNested(holder, value, errors);
+    }
+
+    /**
+     * Runs the cheap checks first: mandatory, built-in checks, regex, custom rules then the nested validator, and
+     * stops after the first group reporting an error.
+     */
+    private void doValidateFailFast(String holder, F value, List<ValidationError> errors) {
+        int before = errors.size();
+
+        checkMandatory(holder, value, errors);
+        if (value == null || errors.size() > before) return;
+
+        checkValue(holder, value, errors);
+        if (errors.size() > before) return;
+
+        checkRegex(holder, value, errors);
+        if (errors.size() > before) return;
+
+        runRules(holder, value, errors);
+        if (errors.size() > before) return;
+
+        checkNested(holder, value, errors);
+    }
+
+    private void checkValue(String holder, F value, List<ValidationError> errors) {
         if(forbidden) {
             String message = ValidatorMessages.message(ErrorCode.FORBIDDEN, getFullFieldName(holder));
             addErrorMessage(holder, errors, ErrorCode.SIZE_LT, message);
         }
 
         // numeric
-        if (value instanceof Number) {
-            double d = ((Number) value).doubleValue();
-            if (min != null && d < min) {
-                String message = ValidatorMessages.message(ErrorCode.LOWER_THAN_MIN, getFullFieldName(holder), d, min);
-                addErrorMessage(holder, errors, ErrorCode.LOWER_THAN_MIN, message);
+        if (value instanceof Number n) {
+            if (min != null && (Numbers.compare(n, min) < 0 || Numbers.isNaN(n))) {
+                addError(holder, errors, ErrorCode.LOWER_THAN_MIN, n, min);
             }
 
-            if (max != null && d > max) {
-                String message = ValidatorMessages.message(ErrorCode.GREATER_THAN_MAX, getFullFieldName(holder), d, max);
-                addErrorMessage(holder, errors, ErrorCode.GREATER_THAN_MAX, message);
+            if (max != null && Numbers.compare(n, max) > 0) {
+                addError(holder, errors, ErrorCode.GREATER_THAN_MAX, n, max);
             }
         }
 
         // string
         if (value instanceof String s) {
 
-            if (notBlank && s.trim().isEmpty()) {
-                String message = ValidatorMessages.message(ErrorCode.NOT_BLANK, getFullFieldName(holder), s);
-                addErrorMessage(holder, errors, ErrorCode.NOT_BLANK, message);
+            if (notBlank && s.isBlank()) {
+                addError(holder, errors, ErrorCode.NOT_BLANK, s);
             }
 
             if (minLength != null && s.length() < minLength) {
-                String message = ValidatorMessages.message(ErrorCode.LENGTH_LOWER_THAN, getFullFieldName(holder), s.length(), minLength);
-                addErrorMessage(holder,  errors, ErrorCode.LENGTH_LOWER_THAN, message);
+                addError(holder, errors, ErrorCode.LENGTH_LOWER_THAN, s.length(), minLength);
             }
 
             if (maxLength != null && s.length() > maxLength) {
-                String message = ValidatorMessages.message(ErrorCode.LENGTH_GREATER_THAN, getFullFieldName(holder), s.length(), maxLength);
-                addErrorMessage(holder, errors, ErrorCode.LENGTH_GREATER_THAN, message);
+                addError(holder, errors, ErrorCode.LENGTH_GREATER_THAN, s.length(), maxLength);
             }
 
-            if (regex != null && !s.matches(regex)) {
-                String code = customCode == null? ErrorCode.REGEX_DONT_MATCH: customCode;
-                String message = ValidatorMessages.message(code, getFullFieldName(holder), s, regex);
-                addErrorMessage(holder, errors, ErrorCode.REGEX_DONT_MATCH, message);
+            if (minCodePoints != null || maxCodePoints != null) {
+                int length = StringChecks.codePointLength(s);
+                if (minCodePoints != null && length < minCodePoints) {
+                    addError(holder, errors, ErrorCode.LENGTH_LOWER_THAN, length, minCodePoints);
+                }
+                if (maxCodePoints != null && length > maxCodePoints) {
+                    addError(holder, errors, ErrorCode.LENGTH_GREATER_THAN, length, maxCodePoints);
+                }
             }
 
-            if (enumValues != null && !enumValues.contains(s)) {
-                String message = ValidatorMessages.message(ErrorCode.MUST_BE_ONE_OF, getFullFieldName(holder), s, enumValues);
-                addErrorMessage(holder, errors, ErrorCode.MUST_BE_ONE_OF, message);
+            // A string has at most 3 UTF-8 bytes per char, shorter ones cannot exceed the limit
+            if (maxUtf8Bytes != null && (long) s.length() * 3 > maxUtf8Bytes) {
+                int bytes = StringChecks.utf8Length(s);
+                if (bytes > maxUtf8Bytes) {
+                    addError(holder, errors, ErrorCode.BYTE_LENGTH_GREATER_THAN, bytes, maxUtf8Bytes);
+                }
             }
-        }
 
-        // enum type
-        if (value instanceof Enum<?> e) {
-
-            if (enumValues == null || enumValues.isEmpty()) {
-                enumValues = new HashSet<String>(Arrays.stream(e.getDeclaringClass().getEnumConstants()).map(Enum::toString).toList());
-                log.info("possible enum values: " + enumValues.toString());
+            if (charset != null) {
+                int index = charset.indexOfInvalid(s);
+                if (index >= 0) {
+                    addError(holder, errors, ErrorCode.INVALID_CHARACTER, s.charAt(index), index);
+                }
             }
 
-            if (!enumValues.contains(e.name())) {
-                String message = ValidatorMessages.message(ErrorCode.MUST_BE_ONE_OF, getFullFieldName(holder), e, enumValues);
-                addErrorMessage(holder,errors, ErrorCode.MUST_BE_ONE_OF, message);
+            if (enumValues != null && !enumValues.contains(s)) {
+                addError(holder, errors, ErrorCode.MUST_BE_ONE_OF, s, enumValues);
             }
         }
 
-        // Convert local date and localdatetime to zoneddatetime
-        if (value instanceof LocalDateTime d) {
-            var utc = ZoneId.of("UTC");
-            //noinspection unchecked
-            value = (F)ZonedDateTime.of(d, utc);
-        } else if (value instanceof LocalDate d) {
-            var utc = ZoneId.of("UTC");
-            //noinspection unchecked
-            value = (F)ZonedDateTime.of(d, LocalTime.of(0, 0, 0), utc);
-        }
+        // enum type, any constant is valid when no values are declared
+        if (value instanceof Enum<?> e && enumValues != null) {
 
-        if (value instanceof ZonedDateTime d) {
-            if (notBefore != null && d.isBefore(notBefore)) {
-                String dateString = d.format(dateFormatter);
-                String notBeforeString = notBefore.format(dateFormatter);
-                String message = ValidatorMessages.message(ErrorCode.DATE_BEFORE, getFullFieldName(holder), notBeforeString, notBefore);
-                addErrorMessage(holder, errors, ErrorCode.DATE_BEFORE, message);
+            if (!enumValues.contains(e.name())) {
+                addError(holder, errors, ErrorCode.MUST_BE_ONE_OF, e, enumValues);
             }
+        }
 
-            if (notAfter != null && d.isAfter(notAfter)) {
-                String dateString = d.format(dateFormatter);
-                String notAfterString = notAfter.format(dateFormatter);
-                String message = ValidatorMessages.message(ErrorCode.DATE_AFTER, getFullFieldName(holder), notAfterString, notBefore);
-                addErrorMessage(holder, errors, ErrorCode.DATE_AFTER, message);
-            }
+        // temporal
+        if (dateRange != null)
+            dateRange.validate(this, holder, value, errors);
+    }
+
+    private void checkRegex(String holder, F value, List<ValidationError> errors) {
+        if (matcher != null && value instanceof String s && !matcher.matches(s)) {
+            String code = customCode == null? ErrorCode.REGEX_DONT_MATCH: customCode;
+            String message = ValidatorMessages.message(code, getFullFieldName(holder), s, regex);
+            addErrorMessage(holder, errors, ErrorCode.REGEX_DONT_MATCH, message);
         }
+    }
 
-        // validators
+    private void checkNested(String holder, F value, List<ValidationError> errors) {
         if(validator != null) {
 
             String elementHolder = holder == null? value.getClass().getSimpleName(): holder;
@@ -166,14 +225,80 @@ class FieldValidator<F> extends ValueValidator<F> {
         }
     }
 
-    private void setNotBefore(LocalDate date) {
-        var utc = ZoneId.of("UTC");
-        notBefore = ZonedDateTime.of(date, LocalTime.of(0, 0, 0), utc);
+    /**
+     * @return false when only typed ranges check the field, its getter is then never called
+     */
+    boolean usesValue() {
+        return numericRanges.isEmpty() || isMandatory() || forbidden || min != null || max != null
+                || minLength != null || maxLength != null || minCodePoints != null || maxCodePoints != null
+                || maxUtf8Bytes != null || charset != null || regex != null || notBlank || enumValues != null
+                || dateRange != null || validator != null || !getRules().isEmpty();
+    }
+
+    @Override
+    double estimatedCost() {
+        double cost = super.estimatedCost() + numericRanges.size() * RulePlan.CHECK_COST;
+        if (!usesValue()) return cost;
+
+        cost += RulePlan.GETTER_COST;
+        for (var check : new Object[]{min, max, minLength, maxLength, minCodePoints, maxCodePoints, maxUtf8Bytes, charset, dateRange})
+            if (check != null) cost += RulePlan.CHECK_COST;
+        if (isMandatory() || forbidden || notBlank) cost += RulePlan.CHECK_COST;
+        if (enumValues != null) cost += RulePlan.ENUM_COST;
+        if (matcher != null) cost += RulePlan.REGEX_COST;
+        if (validator != null) cost += RulePlan.NESTED_COST;
+        return cost;
+    }
+
+    @SuppressWarnings("unchecked")
+    void addNumericRange(NumericRange<?> range) {
+        numericRanges.add((NumericRange<Object>) range);
     }
 
-    private void setNotAfter(LocalDate date) {
-        var utc = ZoneId.of("UTC");
-        notAfter = ZonedDateTime.of(date, LocalTime.of(0, 0, 0), utc);
+    public void setRegex(String regex) {
+        this.regex = regex;
+        this.matcher = regex == null? null: getEffectiveRegexEngine().compile(regex);
+    }
+
+    /**
+     * Engine of this rule, the default engine when null.
+     */
+    public void setRegexEngine(RegexEngine regexEngine) {
+        this.regexEngine = regexEngine;
+        setRegex(regex);
+    }
+
+    RegexEngine getEffectiveRegexEngine() {
+        return regexEngine == null? RegexEngine.getDefault(): regexEngine;
+    }
+
+    private DateRange dateRange() {
+        if (dateRange == null) dateRange = new DateRange();
+        return dateRange;
+    }
+
+    LocalDate getNotBefore() {
+        return dateRange == null ? null : dateRange.getNotBefore();
+    }
+
+    LocalDate getNotAfter() {
+        return dateRange == null ? null : dateRange.getNotAfter();
+    }
+
+    Duration getMaxAge() {
+        return dateRange == null ? null : dateRange.getMaxAge();
+    }
+
+    void setNotBefore(LocalDate date) {
+        dateRange().setNotBefore(date);
+    }
+
+    void setNotAfter(LocalDate date) {
+        dateRange().setNotAfter(date);
+    }
+
+    void setMaxAge(Duration maxAge) {
+        dateRange().setMaxAge(maxAge);
     }
 
     public static class Builder<T, F> {
@@ -190,6 +315,20 @@ class FieldValidator<F> extends ValueValidator<F> {
             return this;
         }
 
+        /**
+         * The rule applies only when the condition holds on the validated object, e.g.
+         * {@code when(s -> s.getWorkflow() == IMPORT)}. Several conditions must all hold.
+         */
+        public Builder<T, F> when(Predicate<T> condition) {
+            fieldValidator.setGuard(parent.guard(condition, false, fieldValidator.getGuard()));
+            return this;
+        }
+
+        public Builder<T, F> unless(Predicate<T> condition) {
+            fieldValidator.setGuard(parent.guard(condition, true, fieldValidator.getGuard()));
+            return this;
+        }
+
         public Builder<T, F> mandatory() {
             fieldValidator.setMandatory(true);
             return this;
@@ -201,12 +340,12 @@ class FieldValidator<F> extends ValueValidator<F> {
         }
 
         public Builder<T, F> min(Number min) {
-            fieldValidator.setMin(min.doubleValue());
+            fieldValidator.setMin(Numbers.normalize(min));
             return this;
         }
 
         public Builder<T, F> max(Number max) {
-            fieldValidator.setMax(max.doubleValue());
+            fieldValidator.setMax(Numbers.normalize(max));
             return this;
         }
 
@@ -220,6 +359,35 @@ class FieldValidator<F> extends ValueValidator<F> {
             return this;
         }
 
+        /**
+         * Minimum length in Unicode code points, a surrogate pair counts as one character.
+         */
+        public Builder<T, F> minCodePoints(int len) {
+            fieldValidator.setMinCodePoints(len);
+            return this;
+        }
+
+        public Builder<T, F> maxCodePoints(int len) {
+            fieldValidator.setMaxCodePoints(len);
+            return this;
+        }
+
+        /**
+         * Maximum length of the UTF-8 encoded value, computed without encoding it.
+         */
+        public Builder<T, F> maxUtf8Bytes(int bytes) {
+            fieldValidator.setMaxUtf8Bytes(bytes);
+            return this;
+        }
+
+        /**
+         * All characters must belong to the character set, see {@link CharacterSet#EDIFACT_A} and others.
+         */
+        public Builder<T, F> charset(CharacterSet charset) {
+            fieldValidator.setCharset(charset);
+            return this;
+        }
+
         public Builder<T, F> email() {
             fieldValidator.setRegex(EMAIL_REGEX);
             fieldValidator.setCustomCode(EMAIL_CODE);
@@ -231,13 +399,56 @@ class FieldValidator<F> extends ValueValidator<F> {
             return this;
         }
 
+        /**
+         * Regex compiled by the given engine, {@link RegexEngine#DFA} matches in linear time.
+         */
+        public Builder<T, F> regex(String pattern, RegexEngine engine) {
+            fieldValidator.setRegexEngine(engine);
+            fieldValidator.setRegex(pattern);
+            return this;
+        }
+
+        /**
+         * Engine of the regex and email rules of this field.
+         */
+        public Builder<T, F> regexEngine(RegexEngine engine) {
+            fieldValidator.setRegexEngine(engine);
+            return this;
+        }
+
         public Builder<T, F> notBlank() {
             fieldValidator.setNotBlank(true);
             return this;
         }
 
         public Builder<T, F> inEnum(String... values) {
-            fieldValidator.setEnumValues(new HashSet<>(Arrays.asList(values)));
+            return inEnum(Arrays.asList(values));
+        }
+
+        public Builder<T, F> inEnum(Collection<String> values) {
+            fieldValidator.setEnumValues(EnumValues.of(values, false));
+            return this;
+        }
+
+        public Builder<T, F> inEnumIgnoreCase(String... values) {
+            return inEnumIgnoreCase(Arrays.asList(values));
+        }
+
+        public Builder<T, F> inEnumIgnoreCase(Collection<String> values) {
+            fieldValidator.setEnumValues(EnumValues.of(values, true));
+            return this;
+        }
+
+        /**
+         * Allowed values read from a UTF-8 file, one value per line. Blank lines and lines starting with # are skipped.
+         */
+        public Builder<T, F> inEnumFromFile(Path path, boolean ignoreCase) {
+            fieldValidator.setEnumValues(EnumValues.fromFile(path, ignoreCase));
+            return this;
+        }
+
+        public Builder<T, F> inEnumFromResource(String resource, boolean ignoreCase) {
+            fieldValidator.setEnumValues(EnumValues.fromResource(resource, ignoreCase));
             return this;
         }
 
@@ -251,6 +462,26 @@ class FieldValidator<F> extends ValueValidator<F> {
             return this;
         }
 
+        /**
+         * The date cannot be older than the given age, relatively to the current time.
+         */
+        public Builder<T, F> notOlderThan(Duration maxAge) {
+            fieldValidator.setMaxAge(maxAge);
+            return this;
+        }
+
+        public Builder<T, F> notOlderThanDays(int days) {
+            return notOlderThan(Duration.ofDays(days));
+        }
+
+        /**
+         * Clock of the relative date rules, defaults to the UTC system clock.
+         */
+        public Builder<T, F> clock(Clock clock) {
+            fieldValidator.dateRange().setClock(clock);
+            return this;
+        }
+
         public Builder<T, F> predicate(Predicate<F> predicate, String code) {
             return predicate(predicate, code, null);
         }
@@ -265,11 +496,64 @@ class FieldValidator<F> extends ValueValidator<F> {
             return this;
         }
 
+        /**
+         * The value is in the reference index, e.g. {@code inReference(ReferenceIndex.open(Path.of("tariffs.idx")))}.
+         */
+        public Builder<T, F> inReference(ReferenceIndex index) {
+            fieldValidator.addCheck((context, value) -> {
+                if (!index.contains(String.valueOf(value)))
+                    context.report(ErrorCode.NOT_IN_REFERENCE, value, index.getName());
+            });
+            return this;
+        }
+
+        /**
+         * No two validated objects of the batch have the same value, the key set being shared by all the validations
+         * of the batch. Under a {@link BatchValidator} the position of an object is its record number, as in the error
+         * log, and validating an object again does not report it; otherwise objects must be validated once and in
+         * order, their position is counted in values offered to the key set.
+         */
+        public Builder<T, F> uniqueInBatch(BatchUniqueKeys keys) {
+            return uniqueInBatch(keys, BatchValidator::currentRecord);
+        }
+
+        /**
+         * Same as {@link #uniqueInBatch(BatchUniqueKeys)}, the position of the validated object being given by the
+         * caller, e.g. the index of a loop; a negative position takes the next position of the key set.
+         */
+        public Builder<T, F> uniqueInBatch(BatchUniqueKeys keys, LongSupplier position) {
+            fieldValidator.addCheck((context, value) -> {
+                long p = position.getAsLong();
+                var key = String.valueOf(value);
+                long first = p < 0 ? keys.addIfAbsent(key) : keys.addIfAbsent(key, p);
+                if (first >= 0)
+                    context.report(ErrorCode.DUPLICATE_IN_BATCH, value, first);
+            });
+            return this;
+        }
+
+        /**
+         * Rule reporting its errors to the {@link RuleContext}, without allocating a list of messages.
+         */
+        public Builder<T, F> check(ContextRule<F> rule) {
+            fieldValidator.addCheck(rule);
+            return this;
+        }
+
         public Builder<T, F> validate(FluentValidator<F> fluentValidator) {
             fieldValidator.setValidator(fluentValidator);
             return this;
         }
 
+        /**
+         * Validation groups of the rule, see {@link FluentValidator#validate(Object, String...)}. A rule without
+         * group belongs to all of them.
+         */
+        public Builder<T, F> groups(String... groups) {
+            fieldValidator.addGroups(groups);
+            return this;
+        }
+
         public FluentValidator.Builder<T> done() {
             return parent;
         }
@@ -0,0 +1,89 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+
+/**
+ * Rules of a validator and of the validators it extends, in a single list: super-class rules first, each level in
+ * declaration order (field, collection then object rules).
+ * <p>
+ * A subclass rule adds its checks to the super-class rules of the same field; an inherited rule is only dropped when
+ * the subclass redeclares it with the same checks, see {@link BaseValidator#sameChecks}. Guard
+ * conditions are indexed per validator, so each rule keeps the offset of its validator in the guard states of the
+ * whole chain.
+ */
+final class FlatRules {
+    final List<BaseValidator<?>> rules;
+    private final int[] guardBases;
+    private final int guardSlots;
+
+    private FlatRules(List<BaseValidator<?>> rules, int[] guardBases, int guardSlots) {
+        this.rules = rules;
+        this.guardBases = guardBases;
+        this.guardSlots = guardSlots;
+    }
+
+    static FlatRules of(FluentValidator<?> validator) {
+        var rules = new ArrayList<BaseValidator<?>>();
+        var bases = new ArrayList<Integer>();
+        int ownSlots = validator.getGuardConditions();
+        int slots = ownSlots;
+
+        var parent = validator.getExtendsValidator();
+        if (parent != null) {
+            var inherited = parent.flatRules();
+            var own = new ArrayList<BaseValidator<?>>(validator.getFieldValidators());
+            own.addAll(validator.getCollectionRules());
+
+            for (int i = 0; i < inherited.rules.size(); i++) {
+                var rule = inherited.rules.get(i);
+                if (!(rule instanceof ObjectValidator<?>) && own.stream().anyMatch(rule::sameChecks)) continue;
+                rules.add(rule);
+                bases.add(inherited.guardBases[i] + ownSlots);
+            }
+            slots += inherited.guardSlots;
+        }
+
+        for (var rule : validator.getFieldValidators()) { rules.add(rule); bases.add(0); }
+        for (var rule : validator.getCollectionRules()) { rules.add(rule); bases.add(0); }
+        for (var rule : validator.getObjectValidators()) { rules.add(rule); bases.add(0); }
+
+        return new FlatRules(List.copyOf(rules), bases.stream().mapToInt(Integer::intValue).toArray(), slots);
+    }
+
+    /**
+     * Rules of the given groups, and rules without group.
+     */
+    FlatRules restrictTo(Set<String> groups) {
+        var restricted = new ArrayList<BaseValidator<?>>();
+        var bases = new ArrayList<Integer>();
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).inGroups(groups)) {
+                restricted.add(rules.get(i));
+                bases.add(guardBases[i]);
+            }
+        }
+        return new FlatRules(List.copyOf(restricted), bases.stream().mapToInt(Integer::intValue).toArray(), guardSlots);
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    byte[] newGuardStates() {
+        return guardSlots == 0 ? null : new byte[guardSlots];
+    }
+
+    boolean isActive(int rule, Object object, byte[] guardStates) {
+        var guard = rules.get(rule).getGuard();
+        return guard == null || guard.test(object, guardStates, guardBases[rule]);
+    }
+
+    boolean wasActive(int rule, byte[] guardStates) {
+        var guard = rules.get(rule).getGuard();
+        return guard == null || guard.wasTrue(guardStates, guardBases[rule]);
+    }
+
+    int guardBase(int rule) {
+        return guardBases[rule];
+    }
+}
@@ -1,16 +1,27 @@
 package ch.mycargogate.fluentValidator;
 
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.lang.invoke.SerializedLambda;
+import java.math.BigDecimal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
+import static ch.mycargogate.fluentValidator.FieldName.lambdaOf;
 import static ch.mycargogate.fluentValidator.FieldName.nameOf;
 
 /**
  * Core Validator with fluent API
  */
 @Slf4j
+@Getter(AccessLevel.PACKAGE)
 public class FluentValidator<T> {
 
     private final List<FieldValidator<Object>> fieldValidators = new ArrayList<>();
@@ -20,6 +31,22 @@ public class FluentValidator<T> {
     // chained validator for  the super class
     private FluentValidator<?> extendsFluentValidator = null;
 
+    // validated class, when declared (e.g. by the JSON reader)
+    private Class<?> schema;
+
+    // stop at the first failing rule, running the rules in the order of the plan
+    private boolean failFast = false;
+    private RulePlan<T> plan;
+
+    // number of distinct guard conditions, see Guard
+    private int guardConditions = 0;
+
+    // validators restricted to a combination of groups, built on first use
+    private final Map<Set<String>, FluentValidator<T>> groupValidators = new ConcurrentHashMap<>();
+
+    // rules of the inheritance chain, computed on first use
+    private volatile FlatRules flatRules;
+
     public FluentValidator() {
     }
 
@@ -28,24 +55,135 @@ public class FluentValidator<T> {
     }
 
     public <V> void setExtendsValidator(FluentValidator<V> extendsFluentValidator) {
-
-        // TODO: How to check if V subClass T ?
+        checkExtends(schema, extendsFluentValidator);
         this.extendsFluentValidator = extendsFluentValidator;
+        this.flatRules = null;
+    }
+
+    /**
+     * The extended validator must validate a super-class of the validated class, when both classes are known.
+     */
+    private static void checkExtends(Class<?> schema, FluentValidator<?> extendsFluentValidator) {
+        if (schema == null || extendsFluentValidator == null) return;
+
+        var superSchema = extendsFluentValidator.getSchema();
+        if (superSchema != null && !superSchema.isAssignableFrom(schema))
+            throw new IllegalArgumentException("Validator of " + schema.getName() + " cannot extend a validator of "
+                    + superSchema.getName() + ", not a super-class");
+    }
+
+    FlatRules flatRules() {
+        var rules = flatRules;
+        if (rules == null)
+            flatRules = rules = FlatRules.of(this);
+        return rules;
     }
 
     public static <T> Builder<T> builder() {
         return new Builder<>();
     }
 
+    /**
+     * Builder of a validator of the given class, checked against the class of an extended validator.
+     */
+    public static <T> Builder<T> builder(Class<T> type) {
+        var builder = new Builder<T>();
+        builder.fluentValidator.schema = type;
+        return builder;
+    }
+
     public ValidationResult validate(T object) {
-        String holder;
+        return validate(holderOf(object), object);
+    }
 
+    private static String holderOf(Object object) {
         if( object instanceof HolderNode node)
-            holder = object.getClass().getSimpleName() + "[" + node.holderNodeName() + "]";
+            return object.getClass().getSimpleName() + "[" + node.holderNodeName() + "]";
         else
-            holder = object.getClass().getSimpleName();
+            return object.getClass().getSimpleName();
+    }
+
+    /**
+     * Appends the errors of the object to the given list, e.g. a {@link ColumnarErrors} collecting the errors of a
+     * whole batch.
+     *
+     * @return true if the object is valid
+     */
+    public boolean validateInto(T object, List<ValidationError> errors) {
+        return validateInto(holderOf(object), object, errors);
+    }
+
+    public boolean validateInto(String holder, T object, List<ValidationError> errors) {
+        int before = errors.size();
+
+        if(holder == null) holder = getClass().getSimpleName();
+
+        var flat = flatRules();
+        var guardStates = flat.newGuardStates();
+
+        DateRange.Tick.enter();
+        try {
+            if (plan != null) {
+                plan.run(holder, object, errors, guardStates);
+                return errors.size() == before;
+            }
+
+            // rules of the super-classes first, then field, collection and object rules
+            for (int i = 0; i < flat.size(); i++) {
+                if (ValidationBudget.exhausted()) break;
+                if (flat.isActive(i, object, guardStates))
+                    flat.rules.get(i).validateObject(holder, object, errors);
+            }
+        } finally {
+            DateRange.Tick.exit();
+        }
+
+        return errors.size() == before;
+    }
+
+    /**
+     * Validates until the budget is exhausted; the result is then incomplete, with the errors found so far.
+     */
+    public ValidationResult validate(T object, ValidationBudget budget) {
+        List<ValidationError> errors = new ArrayList<>();
+
+        var previous = ValidationBudget.enter(budget);
+        try {
+            validateInto(holderOf(object), object, errors);
+        } finally {
+            ValidationBudget.exit(previous);
+        }
+
+        if (budget.isExhausted()) return ValidationResult.incomplete(errors);
+        return errors.isEmpty() ? ValidationResult.ok() : ValidationResult.fail(errors);
+    }
+
+    /**
+     * Validates with the rules of the given groups and the rules without group.
+     */
+    public ValidationResult validate(T object, String... groups) {
+        return forGroups(groups).validate(object);
+    }
 
-        return validate(holder, object);
+    /**
+     * Validator running the rules of the given groups and the rules without group. The validator is built once per
+     * combination of groups and shares the rules of this one; nested and element validators run all their rules.
+     * A group given more than once is used once.
+     */
+    public FluentValidator<T> forGroups(String... groups) {
+        for (var group : groups)
+            Objects.requireNonNull(group, "group names cannot be null");
+        return groupValidators.computeIfAbsent(Set.copyOf(Arrays.asList(groups)), this::restrictTo);
+    }
+
+    private FluentValidator<T> restrictTo(Set<String> groups) {
+        var restricted = new FluentValidator<T>();
+        restricted.schema = schema;
+        restricted.failFast = failFast;
+        restricted.flatRules = flatRules().restrictTo(groups);
+
+        if (failFast) restricted.buildPlan();
+        return restricted;
     }
 
     public ValidationResult validate(String holder, T object) {
@@ -53,33 +191,286 @@ public class FluentValidator<T> {
 
         List<ValidationError> errors = new ArrayList<>();
 
-        if(holder == null) holder = getClass().getSimpleName();
+        return validateInto(holder, object, errors) ? ValidationResult.ok() : ValidationResult.fail(errors);
+    }
+
+    /**
+     * Builds the plan of a fail-fast validator; object rules run after the rules of their dependencies, or after all
+     * value rules when they declare none. The plan runs fail-fast copies of the rules, which are shared with the
+     * extended validator and the group validators.
+     */
+    private void buildPlan() {
+        plan = new RulePlan<>();
+        var flat = flatRules();
+        var valueSteps = new ArrayList<RulePlan.Entry<T>>();
+        var byField = new HashMap<String, List<RulePlan.Entry<T>>>();
+
+        for (int i = 0; i < flat.size(); i++) {
+            if (flat.rules.get(i) instanceof ObjectValidator<?>) continue;
+
+            var rule = flat.rules.get(i).failFastCopy();
+            var entry = plan.add(rule.getFieldName(), rule::validateObject, rule.estimatedCost(), List.of(), rule.getGuard(), flat.guardBase(i));
+            valueSteps.add(entry);
+            byField.computeIfAbsent(rule.getFieldName(), f -> new ArrayList<>()).add(entry);
+        }
 
-        if( extendsFluentValidator != null) {
+        for (int i = 0; i < flat.size(); i++) {
+            if (!(flat.rules.get(i) instanceof ObjectValidator<?>)) continue;
 
-            @SuppressWarnings("unchecked")
-            var val = (FluentValidator<T>) extendsFluentValidator;
-            errors.addAll(val.validate(holder, object).getErrors());
+            var rule = (ObjectValidator<?>) flat.rules.get(i).failFastCopy();
+            List<RulePlan.Entry<T>> dependencies = valueSteps;
+            if (rule.getDependsOn() != null) {
+                dependencies = new ArrayList<>();
+                for (var field : rule.getDependsOn())
+                    dependencies.addAll(byField.getOrDefault(field, List.of()));
+            }
+            var name = rule.getFieldName() == null ? "object" : rule.getFieldName();
+            plan.add(name, rule::validateObject, rule.estimatedCost(), dependencies, rule.getGuard(), flat.guardBase(i));
         }
 
-        for (var rule : fieldValidators) {
-            rule.validate(holder, object, errors);
+        plan.reorder();
+    }
+
+    double estimatedCost() {
+        double cost = 0;
+        for (var rule : flatRules().rules) cost += rule.estimatedCost();
+        return cost;
+    }
+
+    public ValidationResult revalidate(ValidationResult previous, T object, String... changedPaths) {
+        return revalidate(previous, object, Arrays.asList(changedPaths));
+    }
+
+    /**
+     * Validates an object after a change, re-running only the rules affected by the changed paths and keeping the
+     * other errors of the previous result.
+     * <p>
+     * A path starts with a field name, optionally followed by a nested path or by an element index:
+     * {@code "name"}, {@code "address.city"}, {@code "lines[42]"}, {@code "lines[42].quantity"}. An element index
+     * re-runs the element validator of that element only; when elements are added or removed, the collection
+     * field itself must be given. Object rules run again unless all their {@code dependsOn} fields are unchanged.
+     * <p>
+     * When the previous result was not returned by this method for this validator, the whole object is validated
+     * and the returned result can be used for the next change. A fail-fast validator always validates the whole
+     * object with its plan, as {@link #validate(Object)}.
+     */
+    public ValidationResult revalidate(ValidationResult previous, T object, Collection<String> changedPaths) {
+        var trace = previous == null ? null : previous.getTrace();
+        if (trace != null && trace.validator != this) trace = null;
+
+        String holder = trace != null ? trace.holder : holderOf(object);
+        List<ValidationError> errors = new ArrayList<>();
+
+        // the plan stops at the first error, the rules of the previous result cannot be reused
+        if (plan != null)
+            return validateInto(holder, object, errors) ? ValidationResult.ok() : ValidationResult.fail(errors);
+
+        ValidationTrace newTrace;
+        DateRange.Tick.enter();
+        try {
+            newTrace = revalidate(holder, object, trace == null ? null : previous.getErrors(), trace,
+                    new ValidationTrace.Changes(changedPaths), errors);
+        } finally {
+            DateRange.Tick.exit();
         }
 
-        for (var rule : collectionRules)
-            rule.validate(holder, object, errors);
+        // stopped by the budget, the next change validates the whole object
+        if (newTrace == null) return ValidationResult.incomplete(errors);
+        return new ValidationResult(errors.isEmpty(), errors.isEmpty() ? List.of() : errors, newTrace);
+    }
 
-        // object rules
-        for (var rule : objectValidators)
-            rule.validate(holder, object, errors);
+    /**
+     * Revalidates until the budget is exhausted; the result is then incomplete, and the next revalidation of its
+     * object validates the whole object.
+     */
+    public ValidationResult revalidate(ValidationResult previous, T object, ValidationBudget budget,
+                                       Collection<String> changedPaths) {
+        var previousBudget = ValidationBudget.enter(budget);
+        try {
+            var result = revalidate(previous, object, changedPaths);
+            return budget.isExhausted() && !result.isIncomplete()
+                    ? ValidationResult.incomplete(result.getErrors()) : result;
+        } finally {
+            ValidationBudget.exit(previousBudget);
+        }
+    }
 
-        return errors.isEmpty() ? ValidationResult.ok() : ValidationResult.fail(errors);
+    /**
+     * Appends the errors of the object to the list, re-running all rules when there is no previous trace.
+     *
+     * @return the trace of the errors, null if the budget was exhausted
+     */
+    private ValidationTrace revalidate(String holder, T object, List<ValidationError> previousErrors,
+                                       ValidationTrace previous, ValidationTrace.Changes changes,
+                                       List<ValidationError> errors) {
+        var flat = flatRules();
+        var trace = new ValidationTrace(this, holder, flat.size());
+        trace.guardStates = flat.newGuardStates();
+
+        for (int i = 0; i < flat.size(); i++) {
+            if (ValidationBudget.exhausted()) return null;
+
+            var rule = flat.rules.get(i);
+            trace.starts[i] = errors.size();
+            if (!flat.isActive(i, object, trace.guardStates)) continue;
+
+            // a rule whose guard was false did not run in the previous validation
+            boolean ran = previous != null && flat.wasActive(i, previous.guardStates);
+
+            if (rule instanceof CollectionValidator<?>) {
+                @SuppressWarnings("unchecked")
+                var collection = (CollectionValidator<Object>) rule;
+                var ruleTrace = ran ? previous : null;
+                trace.elementStarts[i] = revalidateCollection(collection, holder, object, previousErrors, ruleTrace, i,
+                        ruleTrace == null ? null : ruleTrace.elementStarts[i], changes, errors);
+                continue;
+            }
+
+            boolean affected = rule instanceof ObjectValidator<?> objectRule
+                    ? objectRule.getDependsOn() == null || changes.touchesAny(objectRule.getDependsOn())
+                    : changes.touches(rule.getFieldName());
+
+            if (!ran || affected)
+                rule.validateObject(holder, object, errors);
+            else
+                errors.addAll(previousErrors.subList(previous.start(i), previous.end(i)));
+        }
+
+        // an element loop may have stopped on the budget
+        if (ValidationBudget.stopped()) return null;
+
+        trace.starts[flat.size()] = errors.size();
+        return trace;
+    }
+
+    /**
+     * @return the offsets of the element errors, null if the rule has no element validator or element rule
+     */
+    private int[] revalidateCollection(CollectionValidator<Object> rule, String holder, T object,
+                                       List<ValidationError> previousErrors, ValidationTrace previous, int segment,
+                                       int[] previousElements, ValidationTrace.Changes changes,
+                                       List<ValidationError> errors) {
+        var field = rule.getFieldName();
+        int start = errors.size();
+
+        // Unchanged, the errors and the element offsets are shifted
+        if (previous != null && !changes.touches(field) && !rule.readsParent()) {
+            errors.addAll(previousErrors.subList(previous.start(segment), previous.end(segment)));
+            if (previousElements == null) return null;
+
+            int shift = start - previous.start(segment);
+            var elements = previousElements.clone();
+            for (int i = 0; i < elements.length; i++) elements[i] += shift;
+            return elements;
+        }
+
+        var collection = rule.getValue(object);
+
+        // Checks over all the elements, and collapsed errors, need the whole collection again
+        if (rule.hasAggregates() || rule.isCollapseErrors()) {
+            rule.validate(holder, object, collection, errors);
+            return null;
+        }
+
+        rule.validateCollection(holder, collection, errors);
+        if (collection == null || !rule.hasElementChecks())
+            return null;
+
+        var changed = previous == null || changes.touchesWhole(field) ? null : changes.elements(field);
+        boolean incremental = changed != null && previousElements != null
+                && previousElements.length == collection.size() + 1 && changed.length() <= collection.size();
+
+        // The rules of the collection itself may depend on its elements, they always run again
+        var elements = new int[collection.size() + 1];
+
+        // Only the changed elements are read, the errors in between are copied in bulk
+        if (incremental && collection instanceof List<?> list && collection instanceof RandomAccess) {
+            int shift = errors.size() - previousElements[0];
+            int from = 0;
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                if (ValidationBudget.exhausted()) return elements;
+                errors.addAll(previousErrors.subList(previousElements[from], previousElements[i]));
+                for (int j = from; j < i; j++) elements[j] = previousElements[j] + shift;
+
+                elements[i] = errors.size();
+                rule.validateElement(holder, i, list.get(i), errors);
+                shift = errors.size() - previousElements[i + 1];
+                from = i + 1;
+            }
+            errors.addAll(previousErrors.subList(previousElements[from], previousElements[list.size()]));
+            for (int j = from; j < elements.length; j++) elements[j] = previousElements[j] + shift;
+            return elements;
+        }
+
+        int index = 0;
+        for (Object e : collection) {
+            elements[index] = errors.size();
+            if (!incremental || changed.get(index)) {
+                if (ValidationBudget.exhausted()) return elements;
+                rule.validateElement(holder, index, e, errors);
+            }
+            else
+                errors.addAll(previousErrors.subList(previousElements[index], previousElements[index + 1]));
+            index++;
+        }
+        elements[index] = errors.size();
+        return elements;
     }
 
     public static class Builder<T> {
         private final FluentValidator<T> fluentValidator = new FluentValidator<>();
         private Object currentValidator;
-        private FluentValidator<?> extendsFluentValidator = null;
+
+        // Guards of the open when/unless groups, and index of each distinct guard predicate
+        private final Deque<Guard> groups = new ArrayDeque<>();
+        private final Map<Predicate<?>, Integer> guardConditions = new IdentityHashMap<>();
+
+        /**
+         * Stops at the first failing rule. Rules are then ordered by cost and rejection rate, measured at runtime,
+         * instead of the declaration order.
+         */
+        public Builder<T> failFast() {
+            fluentValidator.failFast = true;
+            return this;
+        }
+
+        /**
+         * Opens a group of rules applied only when the condition holds, closed by {@link #endWhen()}. Groups can be
+         * nested, the condition is evaluated once per validated object.
+         */
+        public Builder<T> when(Predicate<T> condition) {
+            validateCurrentField(null);
+            groups.push(guard(condition, false, groups.peek()));
+            return this;
+        }
+
+        /**
+         * Opens a group of rules applied only when the condition does not hold, closed by {@link #endWhen()}.
+         */
+        public Builder<T> unless(Predicate<T> condition) {
+            validateCurrentField(null);
+            groups.push(guard(condition, true, groups.peek()));
+            return this;
+        }
+
+        public Builder<T> endWhen() {
+            validateCurrentField(null);
+            if (groups.isEmpty())
+                throw new IllegalStateException("endWhen() without when() or unless()");
+            groups.pop();
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        Guard guard(Predicate<T> condition, boolean negate, Guard parent) {
+            int index = guardConditions.computeIfAbsent(condition, c -> fluentValidator.guardConditions++);
+            return new Guard((Predicate<Object>) condition, index, negate, parent);
+        }
+
+        private <R extends BaseValidator<?>> R grouped(R rule) {
+            rule.setGuard(groups.peek());
+            return rule;
+        }
 
         public Builder<T> extendsValidator(FluentValidator<?> extendsFluentValidator) {
             fluentValidator.setExtendsValidator(extendsFluentValidator);
@@ -113,33 +504,94 @@ public class FluentValidator<T> {
             currentValidator = newFieldRole;
         }
 
+        private void bindGetter(ValueValidator<?> rule, SerializedLambda lambda) {
+            rule.setGetterName(lambda.getImplMethodName());
+            rule.setGetterOwner(lambda.getImplClass().replace('/', '.'));
+            rule.setCapturingClass(lambda.getCapturingClass().replace('/', '.'));
+        }
+
         public <F> FieldValidator.Builder<T, F> fieldRule(Class<F> schema, String fieldName) {
-            var rule = new FieldValidator<F>(schema, fieldName);
+            if (fluentValidator.schema == null)
+                fluentValidator.schema = schema;
+
+            var rule = grouped(new FieldValidator<F>(schema, fieldName));
             validateCurrentField(rule);
             return new FieldValidator.Builder<T, F>(rule, this);
         }
 
+        /**
+         * Class validated by the getters of the rules, known from the first getter reference.
+         */
+        private void inferSchema(SerializedLambda lambda) {
+            if (fluentValidator.schema != null) return;
+
+            var type = lambda.getInstantiatedMethodType();
+            if (!type.startsWith("(L")) return;
+            var className = type.substring(2, type.indexOf(';')).replace('/', '.');
+            try {
+                fluentValidator.schema = Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+            } catch (ClassNotFoundException | LinkageError e) {
+                log.debug("Cannot load validated class " + className, e);
+            }
+        }
+
         public <F> FieldValidator.Builder<T, F> fieldRule(GetterRef<T, F> ref) {
-            var rule = new FieldValidator<F>(null, nameOf(ref));
+            var lambda = lambdaOf(ref);
+            inferSchema(lambda);
+            var rule = grouped(new FieldValidator<F>(null, nameOf(lambda)));
+            bindGetter(rule, lambda);
             validateCurrentField(rule);
             return new FieldValidator.Builder<T, F>(rule, this);
         }
 
         public <E> CollectionValidator.Builder<T, E> collectionRule(GetterRef<T, Collection<E>> ref) {
-            var rule = new CollectionValidator<E>(null, nameOf(ref));
+            var lambda = lambdaOf(ref);
+            inferSchema(lambda);
+            var rule = grouped(new CollectionValidator<E>(null, nameOf(lambda)));
+            bindGetter(rule, lambda);
             validateCurrentField(rule);
             return new CollectionValidator.Builder<T, E>(rule, this);
         }
 
+        /**
+         * Range of an int field read with a typed accessor, without reflection nor boxing, e.g.
+         * {@code intRange("quantity", Parcel::getQuantity, 1, 99)}.
+         */
+        public Builder<T> intRange(String fieldName, ToIntFunction<T> accessor, int min, int max) {
+            return numericRange(fieldName, new NumericRange.IntRange<>(accessor, min, max));
+        }
+
+        public Builder<T> longRange(String fieldName, ToLongFunction<T> accessor, long min, long max) {
+            return numericRange(fieldName, new NumericRange.LongRange<>(accessor, min, max));
+        }
+
+        public Builder<T> doubleRange(String fieldName, ToDoubleFunction<T> accessor, double min, double max) {
+            return numericRange(fieldName, new NumericRange.DoubleRange<>(accessor, min, max));
+        }
+
+        /**
+         * Range of a decimal field, compared exactly. A null bound is unbounded, a null value is not checked.
+         */
+        public Builder<T> decimalRange(String fieldName, Function<T, BigDecimal> accessor, BigDecimal min, BigDecimal max) {
+            return numericRange(fieldName, new NumericRange.DecimalRange<>(accessor, min, max));
+        }
+
+        private Builder<T> numericRange(String fieldName, NumericRange<T> range) {
+            var rule = grouped(new FieldValidator<>(null, fieldName));
+            rule.addNumericRange(range);
+            validateCurrentField(rule);
+            return this;
+        }
+
         public ObjectValidator.Builder<T> objectRule() {
-            var objectValidator = new ObjectValidator<T>();
+            var objectValidator = grouped(new ObjectValidator<T>());
             validateCurrentField(objectValidator);
 
             return new ObjectValidator.Builder<T>(objectValidator, this);
         }
 
         public <F> ObjectValidator.Builder<T>objectRule(GetterRef<F, T> ref) {
-            var objectValidator = new ObjectValidator<T>(nameOf(ref));
+            var objectValidator = grouped(new ObjectValidator<T>(nameOf(ref)));
             validateCurrentField(objectValidator);
 
             return new ObjectValidator.Builder<T>(objectValidator, this);
@@ -148,6 +600,15 @@ public class FluentValidator<T> {
         public FluentValidator<T> build() {
             validateCurrentField(null);
             currentValidator = null;
+            if (!groups.isEmpty())
+                throw new IllegalStateException("when() or unless() without endWhen()");
+
+            // the super-class rules are merged once, instead of being validated recursively
+            checkExtends(fluentValidator.schema, fluentValidator.extendsFluentValidator);
+            fluentValidator.flatRules = FlatRules.of(fluentValidator);
+
+            if (fluentValidator.failFast)
+                fluentValidator.buildPlan();
             return fluentValidator;
         }
     }
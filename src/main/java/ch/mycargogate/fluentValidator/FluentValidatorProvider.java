@@ -0,0 +1,13 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.Collection;
+
+/**
+ * Supplies the validators of an application to build-time tooling (native-image metadata).
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader} from
+ * {@code META-INF/services/ch.mycargogate.fluentValidator.FluentValidatorProvider}.
+ */
+public interface FluentValidatorProvider {
+    Collection<FluentValidator<?>> validators();
+}
@@ -0,0 +1,46 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.function.Predicate;
+
+/**
+ * Condition of a rule or of a group of rules, see {@code when} and {@code unless}.
+ * <p>
+ * Each distinct predicate has an index in the validator; its result is cached in a per-validation array
+ * (0 not evaluated, 1 true, 2 false) so a predicate shared by many rules is evaluated once per object. A nested
+ * guard is false without evaluating its predicate when its parent is false.
+ */
+final class Guard {
+    private final Predicate<Object> condition;
+    private final int index;
+    private final boolean negate;
+    private final Guard parent;
+
+    Guard(Predicate<Object> condition, int index, boolean negate, Guard parent) {
+        this.condition = condition;
+        this.index = index;
+        this.negate = negate;
+        this.parent = parent;
+    }
+
+    /**
+     * @param base offset of the states of the validator declaring the guard, see {@link FlatRules}
+     */
+    boolean test(Object object, byte[] states, int base) {
+        if (parent != null && !parent.test(object, states, base)) return false;
+
+        byte state = states[base + index];
+        if (state == 0) {
+            state = condition.test(object) ? (byte) 1 : (byte) 2;
+            states[base + index] = state;
+        }
+        return (state == 1) != negate;
+    }
+
+    /**
+     * Result of a previous {@link #test}, from the cached states only.
+     */
+    boolean wasTrue(byte[] states, int base) {
+        if (parent != null && !parent.wasTrue(states, base)) return false;
+        return states[base + index] != 0 && (states[base + index] == 1) != negate;
+    }
+}
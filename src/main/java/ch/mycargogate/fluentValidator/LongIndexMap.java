@@ -0,0 +1,61 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from long keys to the index of their first element, without boxing.
+ */
+final class LongIndexMap {
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] indexes;
+    private int mask;
+    private int size;
+
+    LongIndexMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        indexes = new int[capacity];
+        Arrays.fill(indexes, EMPTY);
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the index of the key if already present, otherwise adds the key with the given index and returns -1
+     */
+    int putIfAbsent(long key, int index) {
+        int slot = slot(key);
+        while (indexes[slot] != EMPTY) {
+            if (keys[slot] == key) return indexes[slot];
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        indexes[slot] = index;
+        if (++size * 2 > keys.length) grow();
+        return EMPTY;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldIndexes = indexes;
+        keys = new long[oldKeys.length * 2];
+        indexes = new int[oldKeys.length * 2];
+        Arrays.fill(indexes, EMPTY);
+        mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldIndexes[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            while (indexes[slot] != EMPTY) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            indexes[slot] = oldIndexes[i];
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package ch.mycargogate.fluentValidator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Records the reflection used by built validators, for GraalVM native images.
+ * <p>
+ * Validators read values through getters found by reflection and resolve field names from serializable method
+ * references. In a native image these getters and the classes declaring the method references must be registered.
+ * The recorded metadata is either registered at image build time by
+ * {@code ch.mycargogate.fluentValidator.nativeimage.FluentValidatorFeature}, or written as reachability metadata
+ * files ({@code reflect-config.json}, {@code serialization-config.json}, {@code resource-config.json}):
+ * <pre>
+ * java -cp ... ch.mycargogate.fluentValidator.NativeImageMetadata src/main/resources/META-INF/native-image/my-app
+ * </pre>
+ * The validators are taken from the {@link FluentValidatorProvider} services; the message bundles and the enum value
+ * files they read are recorded as resources.
+ */
+@Slf4j
+public final class NativeImageMetadata {
+
+    // class name -> getter names
+    private final Map<String, Set<String>> getters = new TreeMap<>();
+    private final Set<String> types = new TreeSet<>();
+    private final Set<String> lambdaCapturingClasses = new TreeSet<>();
+    private final Set<String> resources = new TreeSet<>();
+    private final Set<FluentValidator<?>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public static NativeImageMetadata fromProviders(ClassLoader classLoader) {
+        var metadata = new NativeImageMetadata().recordResource(ValidatorMessages.RESOURCE);
+        for (var provider : ServiceLoader.load(FluentValidatorProvider.class, classLoader)) {
+            log.info("native image metadata: recording validators of " + provider.getClass().getName());
+            provider.validators().forEach(metadata::record);
+        }
+        return metadata;
+    }
+
+    public NativeImageMetadata record(FluentValidator<?> validator) {
+        if (validator == null || !visited.add(validator)) return this;
+
+        if (validator.getSchema() != null)
+            types.add(validator.getSchema().getName());
+
+        record(validator.getExtendsValidator());
+
+        for (var field : validator.getFieldValidators()) {
+            // typed ranges read the field without reflection
+            if (field.usesValue()) recordGetter(field);
+            record(field.getValidator());
+            if (field.getEnumValues() != null && field.getEnumValues().getResource() != null)
+                recordResource(field.getEnumValues().getResource());
+        }
+
+        for (var collection : validator.getCollectionRules()) {
+            recordGetter(collection);
+            record(collection.getElementValidator());
+        }
+
+        return this;
+    }
+
+    /**
+     * Records a classpath resource read at runtime, e.g. a JSON validator definition.
+     */
+    public NativeImageMetadata recordResource(String resource) {
+        resources.add(resource);
+        return this;
+    }
+
+    private void recordGetter(ValueValidator<?> validator) {
+        Method getter = validator.getGetter();
+        if (getter != null) {
+            getters.computeIfAbsent(getter.getDeclaringClass().getName(), k -> new TreeSet<>()).add(getter.getName());
+        } else if (validator.getGetterOwner() != null && validator.getGetterName() != null) {
+            getters.computeIfAbsent(validator.getGetterOwner(), k -> new TreeSet<>()).add(validator.getGetterName());
+        } else {
+            log.warn("native image metadata: getter of field " + validator.getFieldName() + " is unknown, it is resolved at runtime");
+        }
+
+        if (validator.getCapturingClass() != null)
+            lambdaCapturingClasses.add(validator.getCapturingClass());
+    }
+
+    public Map<String, Set<String>> getGetters() {
+        return Collections.unmodifiableMap(getters);
+    }
+
+    public Set<String> getTypes() {
+        return Collections.unmodifiableSet(types);
+    }
+
+    public Set<String> getLambdaCapturingClasses() {
+        return Collections.unmodifiableSet(lambdaCapturingClasses);
+    }
+
+    public Set<String> getResources() {
+        return Collections.unmodifiableSet(resources);
+    }
+
+    public void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        var mapper = new ObjectMapper();
+        var writer = mapper.writerWithDefaultPrettyPrinter();
+
+        var classNames = new TreeSet<>(types);
+        classNames.addAll(getters.keySet());
+
+        ArrayNode reflect = mapper.createArrayNode();
+        for (var className : classNames) {
+            ObjectNode entry = reflect.addObject();
+            entry.put("name", className);
+            var methods = getters.get(className);
+            if (methods != null) {
+                var methodsNode = entry.putArray("methods");
+                for (var method : methods)
+                    methodsNode.addObject().put("name", method).putArray("parameterTypes");
+            }
+        }
+        writer.writeValue(directory.resolve("reflect-config.json").toFile(), reflect);
+
+        ObjectNode serialization = mapper.createObjectNode();
+        serialization.putArray("types");
+        var capturing = serialization.putArray("lambdaCapturingTypes");
+        lambdaCapturingClasses.forEach(c -> capturing.addObject().put("name", c));
+        writer.writeValue(directory.resolve("serialization-config.json").toFile(), serialization);
+
+        ObjectNode resourceConfig = mapper.createObjectNode();
+        var includes = resourceConfig.putObject("resources").putArray("includes");
+        resources.forEach(r -> includes.addObject().put("pattern", "\\Q" + r + "\\E"));
+        writer.writeValue(directory.resolve("resource-config.json").toFile(), resourceConfig);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: NativeImageMetadata <output directory> [resource...]");
+            System.exit(1);
+        }
+
+        var metadata = fromProviders(Thread.currentThread().getContextClassLoader());
+        for (int i = 1; i < args.length; i++)
+            metadata.recordResource(args[i]);
+
+        metadata.write(Path.of(args[0]));
+    }
+}
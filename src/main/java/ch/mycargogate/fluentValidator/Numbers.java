@@ -0,0 +1,79 @@
+package ch.mycargogate.fluentValidator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Exact comparison of boxed numbers: integral values are compared as longs, decimals as {@link BigDecimal},
+ * and doubles are only used when both sides are floating point. Compared with a decimal, a float or double is taken
+ * as its shortest decimal representation, so {@code 0.1} equals {@code new BigDecimal("0.1")}. NaN and infinities are ordered as by
+ * {@link Double#compare}: {@code -Infinity < finite values < Infinity < NaN}.
+ */
+final class Numbers {
+    // Longs with a greater magnitude cannot be converted to a double without loosing precision
+    private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+    private Numbers() {
+    }
+
+    /**
+     * Normalizes a bound: integral types become {@code Long}, float becomes {@code Double}
+     * and {@code BigInteger} becomes {@code BigDecimal}.
+     */
+    static Number normalize(Number n) {
+        if (n == null) return null;
+        if (n instanceof Integer || n instanceof Short || n instanceof Byte) return n.longValue();
+        if (n instanceof Float) return n.doubleValue();
+        if (n instanceof BigInteger b) return new BigDecimal(b);
+        return n;
+    }
+
+    static int compare(Number a, Number b) {
+        // not convertible to BigDecimal, a finite value is compared as 0
+        if (!isFinite(a) || !isFinite(b))
+            return Double.compare(isFinite(a) ? 0 : a.doubleValue(), isFinite(b) ? 0 : b.doubleValue());
+
+        if (isIntegral(a) && isIntegral(b))
+            return Long.compare(a.longValue(), b.longValue());
+
+        if (isDecimal(a) || isDecimal(b))
+            return toBigDecimal(a).compareTo(toBigDecimal(b));
+
+        if (isIntegral(a) && Math.abs(a.longValue()) > EXACT_DOUBLE_LIMIT)
+            return toBigDecimal(a).compareTo(toBigDecimal(b));
+
+        if (isIntegral(b) && Math.abs(b.longValue()) > EXACT_DOUBLE_LIMIT)
+            return toBigDecimal(a).compareTo(toBigDecimal(b));
+
+        return Double.compare(a.doubleValue(), b.doubleValue());
+    }
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte;
+    }
+
+    private static boolean isFinite(Number n) {
+        if (n instanceof Double d) return Double.isFinite(d);
+        if (n instanceof Float f) return Float.isFinite(f);
+        return true;
+    }
+
+    /**
+     * @return true for a float or double NaN, which is outside of any range
+     */
+    static boolean isNaN(Number n) {
+        return (n instanceof Double || n instanceof Float) && Double.isNaN(n.doubleValue());
+    }
+
+    private static boolean isDecimal(Number n) {
+        return n instanceof BigDecimal || n instanceof BigInteger;
+    }
+
+    private static BigDecimal toBigDecimal(Number n) {
+        if (n instanceof BigDecimal d) return d;
+        if (n instanceof BigInteger i) return new BigDecimal(i);
+        if (isIntegral(n)) return BigDecimal.valueOf(n.longValue());
+        if (n instanceof Float f) return new BigDecimal(Float.toString(f));
+        return BigDecimal.valueOf(n.doubleValue());
+    }
+}
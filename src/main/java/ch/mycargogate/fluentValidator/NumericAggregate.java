@@ -0,0 +1,299 @@
+package ch.mycargogate.fluentValidator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Sum, minimum, maximum or count of the elements of a collection, compared with a constant or with a field of the
+ * object holding the collection.
+ * <p>
+ * Values are exact, as the bounds of the field rules. A floating point value is taken as its shortest decimal
+ * representation, e.g. {@code 0.1}, so decimal weights add up as expected. Sums are kept in a primitive long scaled by
+ * a power of ten, without allocating per element; only BigDecimal elements, values needing more than
+ * {@value #MAX_SCALE} decimals or beyond the long range and sums overflowing the long go to a BigDecimal. Results and
+ * limits are compared with {@link Numbers#compare}; a sum of both infinities is NaN and fails every comparison.
+ */
+final class NumericAggregate<T, E> implements ElementAggregate<E> {
+    // Doubles with a greater magnitude may not be integral longs
+    private static final double EXACT_LONG_LIMIT = 0x1p53;
+    // Decimals of a floating point value summed in the scaled long
+    private static final int MAX_SCALE = 18;
+    private static final long[] LONG_POWERS = new long[MAX_SCALE + 1];
+    private static final double[] DOUBLE_POWERS = new double[MAX_SCALE + 1];
+
+    static {
+        LONG_POWERS[0] = 1;
+        DOUBLE_POWERS[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            LONG_POWERS[i] = LONG_POWERS[i - 1] * 10;
+            DOUBLE_POWERS[i] = DOUBLE_POWERS[i - 1] * 10;
+        }
+    }
+
+    enum Kind {
+        SUM("Sum of"), MIN("Minimum of"), MAX("Maximum of"), COUNT("Count of");
+
+        private final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+    }
+
+    enum Comparison { AT_LEAST, AT_MOST, EQUAL }
+
+    private final Kind kind;
+    private final String label;
+    // boxed value of an element, or primitive value when number is null
+    private final GetterRef<E, ? extends Number> number;
+    private final ToDoubleFunction<E> primitive;
+    private final Comparison comparison;
+    private final Number limit;
+    private final GetterRef<T, ? extends Number> parentLimit;
+
+    private NumericAggregate(Kind kind, String name, GetterRef<E, ? extends Number> number,
+                             ToDoubleFunction<E> primitive, Comparison comparison, Number limit,
+                             GetterRef<T, ? extends Number> parentLimit) {
+        this.kind = kind;
+        this.label = kind.label + " " + name;
+        this.number = number;
+        this.primitive = primitive;
+        this.comparison = comparison;
+        this.limit = limit;
+        this.parentLimit = parentLimit;
+    }
+
+    @Override
+    public boolean readsParent() {
+        return parentLimit != null;
+    }
+
+    @Override
+    public Accumulator<E> start(Object parent, int size) {
+        return new Accumulator<>() {
+            // sum is sum * 10^-scale, plus the overflowing and BigDecimal values once decimalSum is not null
+            private long sum;
+            private int scale;
+            private BigDecimal decimalSum;
+            private boolean positiveInfinity, negativeInfinity;
+
+            // minimum or maximum
+            private Number result;
+            private double primitiveResult = kind == Kind.MIN ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            private boolean any;
+
+            @Override
+            public void accept(RuleContext context, int index, E element) {
+                if (element == null) return;
+
+                if (number != null) {
+                    var n = number.apply(element);
+                    // null values are ignored, so are NaN
+                    if (n == null || Numbers.isNaN(n))
+                        return;
+                    any = true;
+
+                    switch (kind) {
+                        case MIN -> { if (result == null || Numbers.compare(n, result) < 0) result = n; }
+                        case MAX -> { if (result == null || Numbers.compare(n, result) > 0) result = n; }
+                        default -> add(n);
+                    }
+                    return;
+                }
+
+                double v = primitive.applyAsDouble(element);
+                if (Double.isNaN(v)) return;
+                any = true;
+
+                switch (kind) {
+                    case MIN -> primitiveResult = Math.min(primitiveResult, v);
+                    case MAX -> primitiveResult = Math.max(primitiveResult, v);
+                    default -> add(v, false);
+                }
+            }
+
+            private void add(Number n) {
+                if (n instanceof Long || n instanceof Integer || n instanceof Short || n instanceof Byte)
+                    add(n.longValue(), 0);
+                else if (n instanceof BigDecimal d) addDecimal(d);
+                else if (n instanceof BigInteger b) addDecimal(new BigDecimal(b));
+                else add(n.doubleValue(), n instanceof Float);
+            }
+
+            /**
+             * Adds the shortest decimal of the value, found as the fewest decimals giving back the value.
+             */
+            private void add(double v, boolean isFloat) {
+                if (Double.isInfinite(v)) {
+                    if (v > 0) positiveInfinity = true;
+                    else negativeInfinity = true;
+                    return;
+                }
+
+                for (int k = 0; k <= MAX_SCALE; k++) {
+                    double unscaled = Math.rint(v * DOUBLE_POWERS[k]);
+                    if (Math.abs(unscaled) >= EXACT_LONG_LIMIT) break;
+
+                    double back = unscaled / DOUBLE_POWERS[k];
+                    if (isFloat ? (float) back == (float) v : back == v) {
+                        add((long) unscaled, k);
+                        return;
+                    }
+                }
+                addDecimal(isFloat ? new BigDecimal(Float.toString((float) v)) : BigDecimal.valueOf(v));
+            }
+
+            private void add(long unscaled, int valueScale) {
+                try {
+                    if (valueScale > scale) {
+                        sum = Math.multiplyExact(sum, LONG_POWERS[valueScale - scale]);
+                        scale = valueScale;
+                    }
+                    sum = Math.addExact(sum, Math.multiplyExact(unscaled, LONG_POWERS[scale - valueScale]));
+                } catch (ArithmeticException e) {
+                    // the long sum is kept when it overflows
+                    addDecimal(BigDecimal.valueOf(unscaled, valueScale));
+                }
+            }
+
+            private void addDecimal(BigDecimal d) {
+                decimalSum = decimalSum == null ? d : decimalSum.add(d);
+            }
+
+            private Number result() {
+                if (kind == Kind.MIN || kind == Kind.MAX)
+                    return number != null ? result : exact(primitiveResult);
+                if (positiveInfinity || negativeInfinity) {
+                    if (positiveInfinity && negativeInfinity) return Double.NaN;
+                    return positiveInfinity ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+                }
+                if (decimalSum == null) return scale == 0 ? (Number) sum : BigDecimal.valueOf(sum, scale);
+                return decimalSum.add(BigDecimal.valueOf(sum, scale));
+            }
+
+            @Override
+            public void finish(RuleContext context) {
+                // no minimum or maximum of an empty collection
+                if (!any && (kind == Kind.MIN || kind == Kind.MAX)) return;
+
+                Number expected;
+                if (parentLimit != null) {
+                    if (parent == null) return;
+                    @SuppressWarnings("unchecked")
+                    var n = parentLimit.apply((T) parent);
+                    if (n == null) return;
+                    expected = n;
+                } else
+                    expected = limit;
+
+                var actual = exact(result());
+                expected = exact(expected);
+                // NaN is ordered after all values, but is within no limit
+                int c = Numbers.isNaN(actual) ? (comparison == Comparison.AT_LEAST ? -1 : 1)
+                        : Numbers.compare(actual, expected);
+                switch (comparison) {
+                    case AT_LEAST -> {
+                        if (c < 0) context.report(ErrorCode.AGGREGATE_LT, label, format(actual), format(expected));
+                    }
+                    case AT_MOST -> {
+                        if (c > 0) context.report(ErrorCode.AGGREGATE_GT, label, format(actual), format(expected));
+                    }
+                    case EQUAL -> {
+                        if (c != 0) context.report(ErrorCode.AGGREGATE_NE, label, format(actual), format(expected));
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * @return the value of a finite float or double as a long when integral, as its decimal representation otherwise
+     */
+    private static Number exact(Number n) {
+        if (!(n instanceof Double || n instanceof Float)) return n;
+        return exact(n instanceof Float f ? Double.parseDouble(f.toString()) : n.doubleValue());
+    }
+
+    private static Number exact(double v) {
+        if (!Double.isFinite(v)) return v;
+        if (v == Math.rint(v) && Math.abs(v) < EXACT_LONG_LIMIT) return (long) v;
+        return BigDecimal.valueOf(v);
+    }
+
+    /**
+     * Decimals are printed without exponent nor trailing zeros.
+     */
+    private static Object format(Number n) {
+        return n instanceof BigDecimal d ? d.stripTrailingZeros().toPlainString() : n;
+    }
+
+    public static class Builder<T, E> {
+        private final CollectionValidator.Builder<T, E> parent;
+        private final Consumer<NumericAggregate<T, E>> add;
+        private final Kind kind;
+        private final String name;
+        private final GetterRef<E, ? extends Number> number;
+        private final ToDoubleFunction<E> primitive;
+
+        /**
+         * @param number    boxed value of an element, null to read the primitive value
+         * @param primitive primitive value of an element, when number is null
+         */
+        Builder(CollectionValidator.Builder<T, E> parent, Consumer<NumericAggregate<T, E>> add, Kind kind, String name,
+                GetterRef<E, ? extends Number> number, ToDoubleFunction<E> primitive) {
+            this.parent = parent;
+            this.add = add;
+            this.kind = kind;
+            this.name = name;
+            this.number = number;
+            this.primitive = primitive;
+        }
+
+        public CollectionValidator.Builder<T, E> atLeast(long limit) {
+            return done(Comparison.AT_LEAST, limit, null);
+        }
+
+        public CollectionValidator.Builder<T, E> atMost(long limit) {
+            return done(Comparison.AT_MOST, limit, null);
+        }
+
+        public CollectionValidator.Builder<T, E> equalTo(long limit) {
+            return done(Comparison.EQUAL, limit, null);
+        }
+
+        public CollectionValidator.Builder<T, E> atLeast(double limit) {
+            return done(Comparison.AT_LEAST, limit, null);
+        }
+
+        public CollectionValidator.Builder<T, E> atMost(double limit) {
+            return done(Comparison.AT_MOST, limit, null);
+        }
+
+        public CollectionValidator.Builder<T, E> equalTo(double limit) {
+            return done(Comparison.EQUAL, limit, null);
+        }
+
+        /**
+         * Compared with a field of the object holding the collection, not checked when the field is null.
+         */
+        public CollectionValidator.Builder<T, E> atLeast(GetterRef<T, ? extends Number> limit) {
+            return done(Comparison.AT_LEAST, null, limit);
+        }
+
+        public CollectionValidator.Builder<T, E> atMost(GetterRef<T, ? extends Number> limit) {
+            return done(Comparison.AT_MOST, null, limit);
+        }
+
+        public CollectionValidator.Builder<T, E> equalTo(GetterRef<T, ? extends Number> limit) {
+            return done(Comparison.EQUAL, null, limit);
+        }
+
+        private CollectionValidator.Builder<T, E> done(Comparison comparison, Number limit,
+                                                       GetterRef<T, ? extends Number> parentLimit) {
+            add.accept(new NumericAggregate<>(kind, name, number, primitive, comparison, limit, parentLimit));
+            return parent;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ch.mycargogate.fluentValidator;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Range rule on a numeric field read with a typed accessor from the validated object.
+ * <p>
+ * Values are read and compared as primitives, they are only boxed to format the message of a failure.
+ */
+abstract class NumericRange<T> {
+
+    abstract void validate(FieldValidator<?> field, String holder, T object, List<ValidationError> errors);
+
+    void lowerThanMin(FieldValidator<?> field, String holder, List<ValidationError> errors, Object value, Object min) {
+        field.addError(holder, errors, ErrorCode.LOWER_THAN_MIN, value, min);
+    }
+
+    void greaterThanMax(FieldValidator<?> field, String holder, List<ValidationError> errors, Object value, Object max) {
+        field.addError(holder, errors, ErrorCode.GREATER_THAN_MAX, value, max);
+    }
+
+    static class IntRange<T> extends NumericRange<T> {
+        private final ToIntFunction<T> accessor;
+        private final int min, max;
+
+        IntRange(ToIntFunction<T> accessor, int min, int max) {
+            this.accessor = accessor;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void validate(FieldValidator<?> field, String holder, T object, List<ValidationError> errors) {
+            int value = accessor.applyAsInt(object);
+            if (value < min) lowerThanMin(field, holder, errors, value, min);
+            if (value > max) greaterThanMax(field, holder, errors, value, max);
+        }
+    }
+
+    static class LongRange<T> extends NumericRange<T> {
+        private final ToLongFunction<T> accessor;
+        private final long min, max;
+
+        LongRange(ToLongFunction<T> accessor, long min, long max) {
+            this.accessor = accessor;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void validate(FieldValidator<?> field, String holder, T object, List<ValidationError> errors) {
+            long value = accessor.applyAsLong(object);
+            if (value < min) lowerThanMin(field, holder, errors, value, min);
+            if (value > max) greaterThanMax(field, holder, errors, value, max);
+        }
+    }
+
+    static class DoubleRange<T> extends NumericRange<T> {
+        private final ToDoubleFunction<T> accessor;
+        private final double min, max;
+
+        DoubleRange(ToDoubleFunction<T> accessor, double min, double max) {
+            this.accessor = accessor;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void validate(FieldValidator<?> field, String holder, T object, List<ValidationError> errors) {
+            double value = accessor.applyAsDouble(object);
+            // NaN is outside of both bounds
+            if (!(value >= min)) lowerThanMin(field, holder, errors, value, min);
+            if (!(value <= max)) greaterThanMax(field, holder, errors, value, max);
+        }
+    }
+
+    static class DecimalRange<T> extends NumericRange<T> {
+        private final Function<T, BigDecimal> accessor;
+        private final BigDecimal min, max;
+
+        DecimalRange(Function<T, BigDecimal> accessor, BigDecimal min, BigDecimal max) {
+            this.accessor = accessor;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void validate(FieldValidator<?> field, String holder, T object, List<ValidationError> errors) {
+            BigDecimal value = accessor.apply(object);
+            if (value == null) return;
+            if (min != null && value.compareTo(min) < 0) lowerThanMin(field, holder, errors, value.toPlainString(), min.toPlainString());
+            if (max != null && value.compareTo(max) > 0) greaterThanMax(field, holder, errors, value.toPlainString(), max.toPlainString());
+        }
+    }
+}
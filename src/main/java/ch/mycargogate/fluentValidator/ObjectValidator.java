@@ -1,13 +1,14 @@
 package ch.mycargogate.fluentValidator;
 
 import java.time.LocalDate;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
+import java.util.*;
 import java.util.function.Predicate;
 
 class ObjectValidator<F> extends BaseValidator<F> {
 
+    // Fields read by the rules, null when unknown
+    private Set<String> dependsOn;
+
     public ObjectValidator(String fieldName) {
         super(fieldName);
     }
@@ -16,6 +17,21 @@ class ObjectValidator<F> extends BaseValidator<F> {
         super(null);
     }
 
+    Set<String> getDependsOn() {
+        return dependsOn;
+    }
+
+    void addDependsOn(Collection<String> fields) {
+        if (dependsOn == null) dependsOn = new LinkedHashSet<>();
+        dependsOn.addAll(fields);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void validateObject(String holder, Object object, List<ValidationError> errors) {
+        validate(holder, (F) object, errors);
+    }
+
     void validate(String holder, F object, List<ValidationError> errors) {
         try {
             doValidate(holder, object, errors);
@@ -42,11 +58,44 @@ class ObjectValidator<F> extends BaseValidator<F> {
             return this;
         }
 
+        /**
+         * Fields read by the rules of this object rule. On {@link FluentValidator#revalidate}, the rule runs again
+         * only when one of them changed, a rule without dependencies always runs again.
+         */
+        public ObjectValidator.Builder<T> dependsOn(String... fields) {
+            objectValidator.addDependsOn(Arrays.asList(fields));
+            return this;
+        }
+
+        @SafeVarargs
+        public final ObjectValidator.Builder<T> dependsOn(GetterRef<T, ?>... refs) {
+            for (var ref : refs)
+                objectValidator.addDependsOn(List.of(FieldName.nameOf(ref)));
+            return this;
+        }
+
         public ObjectValidator.Builder<T> rule(RuleRunner<T> rule) {
             objectValidator.addRule(rule);
             return this;
         }
 
+        /**
+         * Rule reporting its errors to the {@link RuleContext}, without allocating a list of messages.
+         */
+        public ObjectValidator.Builder<T> check(ContextRule<T> rule) {
+            objectValidator.addCheck(rule);
+            return this;
+        }
+
+        /**
+         * Validation groups of the rule, see {@link FluentValidator#validate(Object, String...)}. A rule without
+         * group belongs to all of them.
+         */
+        public ObjectValidator.Builder<T> groups(String... groups) {
+            objectValidator.addGroups(groups);
+            return this;
+        }
+
         public FluentValidator.Builder<T> done() {
             return parent;
         }
@@ -0,0 +1,166 @@
+package ch.mycargogate.fluentValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Long-addressed buffer made of fixed size chunks, allocated off-heap or mapped in a spill file, see {@link Allocator}.
+ */
+final class OffHeapBuffer {
+    private final Allocator allocator;
+    private final int shift;
+    private final int mask;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    /**
+     * @param chunkSize power of two, at most 1 GB
+     */
+    OffHeapBuffer(Allocator allocator, int chunkSize) {
+        if (Integer.bitCount(chunkSize) != 1)
+            throw new IllegalArgumentException("Chunk size must be a power of two: " + chunkSize);
+        this.allocator = allocator;
+        this.shift = Integer.numberOfTrailingZeros(chunkSize);
+        this.mask = chunkSize - 1;
+    }
+
+    int chunkSize() {
+        return mask + 1;
+    }
+
+    long capacity() {
+        return (long) chunks.size() << shift;
+    }
+
+    /**
+     * Allocates chunks until the buffer holds the given number of bytes; new chunks are zeroed.
+     */
+    void ensureCapacity(long bytes) {
+        while (capacity() < bytes)
+            chunks.add(allocator.allocate(chunkSize()));
+    }
+
+    /**
+     * Gives the chunks back to the allocator; the buffer is empty afterwards.
+     */
+    void release() {
+        for (var chunk : chunks)
+            allocator.release(chunk);
+        chunks.clear();
+    }
+
+    /**
+     * @return the number of bytes left in the chunk of the position
+     */
+    int remainingInChunk(long position) {
+        return chunkSize() - (int) (position & mask);
+    }
+
+    long getLong(long position) {
+        return chunks.get((int) (position >>> shift)).getLong((int) (position & mask));
+    }
+
+    void putLong(long position, long value) {
+        chunks.get((int) (position >>> shift)).putLong((int) (position & mask), value);
+    }
+
+    int getInt(long position) {
+        return chunks.get((int) (position >>> shift)).getInt((int) (position & mask));
+    }
+
+    void putInt(long position, int value) {
+        chunks.get((int) (position >>> shift)).putInt((int) (position & mask), value);
+    }
+
+    byte get(long position) {
+        return chunks.get((int) (position >>> shift)).get((int) (position & mask));
+    }
+
+    /**
+     * Writes the bytes in a single chunk, see {@link #remainingInChunk}.
+     */
+    void put(long position, byte[] bytes) {
+        chunks.get((int) (position >>> shift)).put((int) (position & mask), bytes);
+    }
+
+    /**
+     * Allocates off-heap chunks up to a memory threshold, then maps the next chunks in a temporary spill file.
+     * Released off-heap chunks no longer count in the threshold, released regions of the spill file are reused by the
+     * next chunks of the same size.
+     */
+    static final class Allocator implements Closeable {
+        private final long memoryThreshold;
+        private final Path spillDirectory;
+        private long directBytes;
+        private Path spillFile;
+        private FileChannel spillChannel;
+        private long spillBytes;
+        // chunks mapped in the spill file, and released ones by size
+        private final Set<ByteBuffer> mapped = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Integer, List<ByteBuffer>> freeMapped = new HashMap<>();
+
+        Allocator(long memoryThreshold, Path spillDirectory) {
+            this.memoryThreshold = memoryThreshold;
+            this.spillDirectory = spillDirectory;
+        }
+
+        ByteBuffer allocate(int size) {
+            if (directBytes + size <= memoryThreshold) {
+                directBytes += size;
+                return ByteBuffer.allocateDirect(size);
+            }
+
+            var free = freeMapped.get(size);
+            if (free != null && !free.isEmpty()) {
+                var buffer = free.remove(free.size() - 1);
+                for (int i = 0; i < size; i += 8) buffer.putLong(i, 0);
+                return buffer;
+            }
+
+            try {
+                if (spillChannel == null) {
+                    spillFile = Files.createTempFile(spillDirectory, "fluent-validator-", ".spill");
+                    spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                            StandardOpenOption.DELETE_ON_CLOSE);
+                }
+                var buffer = spillChannel.map(FileChannel.MapMode.READ_WRITE, spillBytes, size);
+                spillBytes += size;
+                mapped.add(buffer);
+                return buffer;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map spill file in " + spillDirectory, e);
+            }
+        }
+
+        void release(ByteBuffer chunk) {
+            if (mapped.contains(chunk))
+                freeMapped.computeIfAbsent(chunk.capacity(), size -> new ArrayList<>()).add(chunk);
+            else
+                directBytes -= chunk.capacity();
+        }
+
+        boolean isSpilled() {
+            return spillChannel != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spillChannel != null) {
+                spillChannel.close();
+                Files.deleteIfExists(spillFile);
+            }
+        }
+    }
+}
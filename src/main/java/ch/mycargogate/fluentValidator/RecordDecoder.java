@@ -0,0 +1,45 @@
+package ch.mycargogate.fluentValidator;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Decodes the records of a file read by {@link BatchValidator}, e.g.
+ * <pre>{@code
+ * RecordDecoder<Order> decoder = RecordDecoder.lines(Order::parse);
+ * }</pre>
+ */
+@FunctionalInterface
+public interface RecordDecoder<T> {
+
+    /**
+     * Decodes the record at the position of the buffer and moves the position after it.
+     *
+     * @param endOfInput true if no bytes follow the remaining bytes of the buffer
+     * @return the record; null with the position unchanged if the buffer does not hold a whole record, null with the
+     * position moved to skip a record
+     */
+    T decode(ByteBuffer buffer, boolean endOfInput);
+
+    /**
+     * @return a decoder of UTF-8 lines ended by {@code \n} or {@code \r\n}, the last line may have no end; lines
+     * parsed to null are skipped
+     */
+    static <T> RecordDecoder<T> lines(Function<String, T> parser) {
+        return (buffer, endOfInput) -> {
+            int start = buffer.position();
+            int end = start;
+            while (end < buffer.limit() && buffer.get(end) != '\n') end++;
+
+            if (end == buffer.limit() && (!endOfInput || end == start)) return null;
+
+            int next = end < buffer.limit() ? end + 1 : end;
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+
+            var line = StandardCharsets.UTF_8.decode(buffer.slice(start, end - start)).toString();
+            buffer.position(next);
+            return parser.apply(line);
+        };
+    }
+}
@@ -0,0 +1,250 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorted set of reference values in a memory-mapped file, for reference lists too large for {@code inEnum}, see
+ * {@code FieldValidator.Builder.inReference}.
+ * <p>
+ * The file is built offline from a text file with one value per line:
+ * <pre>
+ * java -cp ... ch.mycargogate.fluentValidator.ReferenceIndex tariff-numbers.txt tariff-numbers.idx
+ * </pre>
+ * Layout: magic, version, count, then {@code count + 1} offsets and the UTF-8 values sorted by unsigned bytes.
+ * Lookups binary search the mapped file without copying it. An index is opened once per file in the JVM and shared;
+ * an optional Bloom filter on the heap answers most absent values without reading the file.
+ */
+@Slf4j
+public final class ReferenceIndex {
+    private static final int MAGIC = 0x46565249; // FVRI
+    private static final int VERSION = 1;
+    private static final int HEADER = 4 + 4 + 8;
+    private static final int CHUNK_SHIFT = 30;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private static final Map<Path, ReferenceIndex> OPENED = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final MappedByteBuffer[] chunks;
+    private final long count;
+    private final long dataStart;
+    private volatile BloomFilter bloomFilter;
+
+    private ReferenceIndex(Path path) throws IOException {
+        name = path.getFileName().toString();
+        try (var channel = FileChannel.open(path)) {
+            long size = channel.size();
+            chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_MASK + 1L, size - start));
+            }
+        }
+
+        if (chunks.length == 0 || getInt(0) != MAGIC)
+            throw new IOException("Not a reference index: " + path);
+        if (getInt(4) != VERSION)
+            throw new IOException("Unsupported reference index version " + getInt(4) + ": " + path);
+
+        count = getLong(8);
+        dataStart = HEADER + (count + 1) * 8;
+    }
+
+    /**
+     * @return the index of the file, mapped on first use and shared by all validators
+     */
+    public static ReferenceIndex open(Path path) {
+        return OPENED.computeIfAbsent(path.toAbsolutePath().normalize(), p -> {
+            try {
+                return new ReferenceIndex(p);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #open(Path)}, with a Bloom filter of about 1% false positives built on first use.
+     */
+    public static ReferenceIndex openWithBloomFilter(Path path) {
+        var index = open(path);
+        index.bloomFilter();
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public boolean contains(String value) {
+        var key = value.getBytes(StandardCharsets.UTF_8);
+
+        var filter = bloomFilter;
+        if (filter != null && !filter.mightContain(key, 0, key.length)) return false;
+
+        long low = 0, high = count - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int c = compare(middle, key);
+            if (c < 0) low = middle + 1;
+            else if (c > 0) high = middle - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    private synchronized BloomFilter bloomFilter() {
+        if (bloomFilter == null) {
+            var filter = new BloomFilter(count);
+            var bytes = new byte[64];
+            for (long i = 0; i < count; i++) {
+                long start = entryStart(i);
+                int length = (int) (entryStart(i + 1) - start);
+                if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+                for (int j = 0; j < length; j++) bytes[j] = get(start + j);
+                filter.add(bytes, 0, length);
+            }
+            bloomFilter = filter;
+        }
+        return bloomFilter;
+    }
+
+    /**
+     * Compares the entry with the key, by unsigned bytes.
+     */
+    private int compare(long entry, byte[] key) {
+        long start = entryStart(entry);
+        int length = (int) (entryStart(entry + 1) - start);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int c = Byte.toUnsignedInt(get(start + i)) - Byte.toUnsignedInt(key[i]);
+            if (c != 0) return c;
+        }
+        return length - key.length;
+    }
+
+    private long entryStart(long entry) {
+        return dataStart + getLong(HEADER + entry * 8);
+    }
+
+    private byte get(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+    }
+
+    // Header and offsets are 8-byte aligned, they never cross a chunk
+    private long getLong(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    private int getInt(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Writes the index of the values, duplicates and empty values are ignored.
+     */
+    public static void write(Collection<String> values, Path output) throws IOException {
+        var sorted = new ArrayList<byte[]>(values.size());
+        for (var value : values)
+            if (value != null && !value.isEmpty()) sorted.add(value.getBytes(StandardCharsets.UTF_8));
+        sorted.sort(Arrays::compareUnsigned);
+
+        var distinct = new ArrayList<byte[]>(sorted.size());
+        for (var value : sorted)
+            if (distinct.isEmpty() || !Arrays.equals(distinct.get(distinct.size() - 1), value)) distinct.add(value);
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(distinct.size());
+
+            long offset = 0;
+            for (var value : distinct) {
+                out.writeLong(offset);
+                offset += value.length;
+            }
+            out.writeLong(offset);
+
+            for (var value : distinct)
+                out.write(value);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: ReferenceIndex <values file, one per line> <index file>");
+            System.exit(1);
+        }
+
+        var values = new ArrayList<String>();
+        try (var lines = Files.lines(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            lines.map(String::trim).forEach(values::add);
+        }
+        write(values, Path.of(args[1]));
+        log.info("reference index " + args[1] + " written from " + values.size() + " lines");
+    }
+
+    /**
+     * Bloom filter with 10 bits per value and 7 hash functions, computed by double hashing.
+     */
+    private static final class BloomFilter {
+        private static final int HASHES = 7;
+        // 2^30 longs, the largest power of two below the maximum array length
+        private static final long MAX_BITS = 1L << 36;
+
+        private final long[] bits;
+        private final long mask;
+
+        BloomFilter(long values) {
+            long size = Long.highestOneBit(Math.max(64, values * 10 - 1)) << 1;
+            // the size stays a power of two, so that mask only indexes bits of the array
+            bits = new long[(int) (Math.min(size, MAX_BITS) >>> 6)];
+            mask = ((long) bits.length << 6) - 1;
+        }
+
+        void add(byte[] key, int from, int length) {
+            long h1 = hash(key, from, length, 0x9E3779B97F4A7C15L);
+            long h2 = hash(key, from, length, 0xC2B2AE3D27D4EB4FL) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                bits[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(byte[] key, int from, int length) {
+            long h1 = hash(key, from, length, 0x9E3779B97F4A7C15L);
+            long h2 = hash(key, from, length, 0xC2B2AE3D27D4EB4FL) | 1;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = (h1 + i * h2) & mask;
+                if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) return false;
+            }
+            return true;
+        }
+
+        private static long hash(byte[] key, int from, int length, long seed) {
+            long h = seed ^ length;
+            for (int i = from; i < from + length; i++) {
+                h ^= key[i];
+                h *= 0x100000001b3L;
+                h ^= h >>> 29;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
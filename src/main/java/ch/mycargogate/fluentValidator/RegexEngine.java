@@ -0,0 +1,85 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.regex.Pattern;
+
+/**
+ * Backend compiling the regex of field rules.
+ * <p>
+ * {@link #DFA} matches in time linear to the value length, which bounds the cost of hostile input. Patterns outside
+ * its supported subset (back references, lookarounds, ...) fall back to {@link #JDK}. The engine is chosen per rule
+ * with {@code regex(pattern, engine)} or globally with {@link #setDefault(RegexEngine)}.
+ */
+@Slf4j
+public enum RegexEngine {
+    /**
+     * {@link java.util.regex.Pattern}, backtracking.
+     */
+    JDK,
+    /**
+     * Lazily built DFA.
+     */
+    DFA;
+
+    // FieldValidator.EMAIL_REGEX without the lookahead bounding the local part, checked separately
+    private static final String EMAIL_DFA_REGEX = "[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*@[^-][A-Za-z0-9-]+(\\.[A-Za-z0-9-]+)*(\\.[A-Za-z]{2,})";
+    private static final int EMAIL_MAX_LOCAL_LENGTH = 64;
+
+    private static volatile RegexEngine defaultEngine = JDK;
+
+    public static RegexEngine getDefault() {
+        return defaultEngine;
+    }
+
+    /**
+     * Engine of the rules declared without an explicit engine, applies to the rules built afterwards.
+     */
+    public static void setDefault(RegexEngine engine) {
+        defaultEngine = engine == null ? JDK : engine;
+    }
+
+    RegexMatcher compile(String regex) {
+        if (this == DFA) {
+            if (regex.equals(FieldValidator.EMAIL_REGEX))
+                return email();
+
+            var dfa = DfaRegex.compile(regex);
+            if (dfa != null) return dfa;
+            log.debug("Regex not supported by the DFA engine, using java.util.regex: {}", regex);
+        }
+
+        var pattern = Pattern.compile(regex);
+        return new RegexMatcher() {
+            @Override
+            public boolean matches(CharSequence input) {
+                return pattern.matcher(input).matches();
+            }
+
+            @Override
+            public String pattern() {
+                return regex;
+            }
+        };
+    }
+
+    private static RegexMatcher email() {
+        var dfa = DfaRegex.compile(EMAIL_DFA_REGEX);
+        return new RegexMatcher() {
+            @Override
+            public boolean matches(CharSequence input) {
+                if (!dfa.matches(input)) return false;
+
+                // The local part cannot contain '@', it ends at the first one
+                for (int i = 0; i <= EMAIL_MAX_LOCAL_LENGTH; i++)
+                    if (input.charAt(i) == '@') return true;
+                return false;
+            }
+
+            @Override
+            public String pattern() {
+                return FieldValidator.EMAIL_REGEX;
+            }
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package ch.mycargogate.fluentValidator;
+
+/**
+ * Compiled regex of a field rule, the whole value must match.
+ */
+interface RegexMatcher {
+    boolean matches(CharSequence input);
+
+    String pattern();
+}
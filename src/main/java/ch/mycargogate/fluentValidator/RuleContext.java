@@ -0,0 +1,114 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Validated field and error list passed to a {@link ContextRule}; one context is used for all the rules of a field.
+ * <p>
+ * Contexts are reused by the validations of a thread, a rule must not keep its context after the check. Reported
+ * errors only keep the code and the arguments, the message is formatted when it is read.
+ */
+public final class RuleContext {
+    private static final ThreadLocal<Pool> POOL = ThreadLocal.withInitial(Pool::new);
+    private static final Object[] NO_ARGS = {};
+
+    private final Pool pool;
+    private BaseValidator<?> validator;
+    private String holder;
+    private List<ValidationError> errors;
+    private int start;
+    // index of the checked element of a collection, -1 for a field
+    private int element;
+
+    private RuleContext(Pool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return a free context of the current thread, to {@link #close()} after the checks
+     */
+    static RuleContext open(BaseValidator<?> validator, String holder, List<ValidationError> errors) {
+        var pool = POOL.get();
+        var context = pool.size == 0 ? new RuleContext(pool) : pool.free[--pool.size];
+        context.validator = validator;
+        context.holder = holder;
+        context.errors = errors;
+        context.start = errors.size();
+        context.element = -1;
+        return context;
+    }
+
+    void close() {
+        validator = null;
+        holder = null;
+        errors = null;
+
+        if (pool.size == pool.free.length) pool.free = Arrays.copyOf(pool.free, pool.size * 2);
+        pool.free[pool.size++] = this;
+    }
+
+    /**
+     * Sets the collection element checked by the next rules, -1 when the rules check the collection.
+     */
+    void setElement(int index) {
+        element = index;
+    }
+
+    public String getHolder() {
+        return holder;
+    }
+
+    /**
+     * @return the name of the field, followed by the index of the checked element, e.g. {@code lines[3]}
+     */
+    public String getFieldName() {
+        var name = validator.getFieldName();
+        return element < 0 ? name : name + "[" + element + "]";
+    }
+
+    /**
+     * @return the path of the field, first argument of the error messages
+     */
+    public String getFullFieldName() {
+        return BaseValidator.fullFieldName(holder, getFieldName());
+    }
+
+    /**
+     * @return true when the validation stops at the first error
+     */
+    public boolean isFailFast() {
+        return validator.isFailFast();
+    }
+
+    /**
+     * @return the number of errors reported on this field
+     */
+    public int getErrorCount() {
+        return errors.size() - start;
+    }
+
+    public void report(String code) {
+        report(code, NO_ARGS);
+    }
+
+    /**
+     * Reports an error with the message of the code; the full field name is the first argument of the message.
+     */
+    public void report(String code, Object... args) {
+        errors.add(ValidationError.deferred(holder, getFieldName(), code, args));
+    }
+
+    public void reportMessage(String code, String message) {
+        if (message != null)
+            errors.add(new ValidationError(holder, getFieldName(), code, message));
+    }
+
+    /**
+     * Free contexts of a thread, as many as the nesting depth of the validations.
+     */
+    private static final class Pool {
+        private RuleContext[] free = new RuleContext[8];
+        private int size;
+    }
+}
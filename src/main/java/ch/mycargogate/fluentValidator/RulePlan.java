@@ -0,0 +1,151 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution order of the rules of a fail-fast validator.
+ * <p>
+ * Each rule has an expected cost, first estimated from its checks then measured on a sample of the runs, and a
+ * rejection rate. Rules run by increasing cost / rejection rate, so cheap rules rejecting often run first, and the
+ * order is recomputed every {@link #REORDER_INTERVAL} validations. A rule never runs before the rules it depends on,
+ * e.g. an object rule before the fields of its {@code dependsOn}.
+ */
+final class RulePlan<T> {
+    // Estimated costs, in nanoseconds
+    static final double GETTER_COST = 20;
+    static final double CHECK_COST = 5;
+    static final double ENUM_COST = 20;
+    static final double REGEX_COST = 300;
+    static final double RULE_COST = 500;
+    static final double NESTED_COST = 1_000;
+
+    static final int REORDER_INTERVAL = 1_024;
+    private static final int SAMPLE_MASK = 15;
+
+    @FunctionalInterface
+    interface Step<T> {
+        void run(String holder, T object, List<ValidationError> errors);
+    }
+
+    private final List<Entry<T>> entries = new ArrayList<>();
+    private final AtomicLong validations = new AtomicLong();
+    private volatile List<Entry<T>> order = List.of();
+
+    Entry<T> add(String name, Step<T> step, double estimatedCost, Collection<Entry<T>> dependencies, Guard guard, int guardBase) {
+        var entry = new Entry<>(name, step, estimatedCost, List.copyOf(dependencies), guard, guardBase);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Runs the rules until one reports an error, skipping the rules whose guard is false.
+     */
+    void run(String holder, T object, List<ValidationError> errors, byte[] guardStates) {
+        for (var entry : order) {
+            if (ValidationBudget.exhausted()) break;
+            if (entry.guard != null && !entry.guard.test(object, guardStates, entry.guardBase)) continue;
+            if (entry.run(holder, object, errors)) break;
+        }
+
+        if (validations.incrementAndGet() % REORDER_INTERVAL == 0)
+            reorder();
+    }
+
+    /**
+     * Sorts the rules by score, a rule being eligible once its dependencies are placed.
+     */
+    void reorder() {
+        var remaining = new ArrayList<>(entries);
+        var placed = new HashSet<Entry<T>>();
+        var result = new ArrayList<Entry<T>>(entries.size());
+
+        while (!remaining.isEmpty()) {
+            Entry<T> best = null;
+            double bestScore = Double.MAX_VALUE;
+            for (var entry : remaining) {
+                if (!placed.containsAll(entry.dependencies)) continue;
+                double score = entry.score();
+                if (best == null || score < bestScore) {
+                    best = entry;
+                    bestScore = score;
+                }
+            }
+            if (best == null)
+                throw new IllegalStateException("Cyclic rule dependencies: " + remaining);
+
+            remaining.remove(best);
+            placed.add(best);
+            result.add(best);
+        }
+
+        order = List.copyOf(result);
+    }
+
+    List<String> order() {
+        return order.stream().map(e -> e.name).toList();
+    }
+
+    double estimatedCost() {
+        return entries.stream().mapToDouble(e -> e.estimatedCost).sum();
+    }
+
+    static final class Entry<T> {
+        private final String name;
+        private final Step<T> step;
+        private final double estimatedCost;
+        private final List<Entry<T>> dependencies;
+        private final Guard guard;
+        private final int guardBase;
+
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong rejects = new AtomicLong();
+        private final AtomicLong samples = new AtomicLong();
+        private final AtomicLong sampledNanos = new AtomicLong();
+
+        private Entry(String name, Step<T> step, double estimatedCost, List<Entry<T>> dependencies, Guard guard, int guardBase) {
+            this.name = name;
+            this.step = step;
+            this.estimatedCost = estimatedCost;
+            this.dependencies = dependencies;
+            this.guard = guard;
+            this.guardBase = guardBase;
+        }
+
+        /**
+         * @return true if the rule reported an error
+         */
+        boolean run(String holder, T object, List<ValidationError> errors) {
+            int before = errors.size();
+
+            // Only a sample of the runs is timed
+            if ((runs.incrementAndGet() & SAMPLE_MASK) == 1) {
+                long start = System.nanoTime();
+                step.run(holder, object, errors);
+                sampledNanos.addAndGet(System.nanoTime() - start);
+                samples.incrementAndGet();
+            } else
+                step.run(holder, object, errors);
+
+            if (errors.size() > before) {
+                rejects.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Expected cost per rejection, the estimate counts as one sample and the rejection rate starts at 1/2.
+         */
+        double score() {
+            double cost = (estimatedCost + sampledNanos.get()) / (1 + samples.get());
+            double rejectionRate = (rejects.get() + 1.0) / (runs.get() + 2.0);
+            return cost / rejectionRate;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -2,6 +2,10 @@ package ch.mycargogate.fluentValidator;
 
 import java.util.List;
 
+/**
+ * Rule returning its errors, null when the value is valid. See {@link ContextRule} for rules reporting their errors
+ * without allocating a list.
+ */
 @FunctionalInterface
 public interface RuleRunner<T> extends java.io.Serializable {
     List<ErrorCodeMessage> run(String holder, T value);
@@ -0,0 +1,39 @@
+package ch.mycargogate.fluentValidator;
+
+/**
+ * Allocation-free string measures used by the string rules.
+ */
+final class StringChecks {
+
+    private StringChecks() {
+    }
+
+    static int codePointLength(String s) {
+        return s.codePointCount(0, s.length());
+    }
+
+    /**
+     * Length of the UTF-8 encoding, without encoding. Unpaired surrogates count as one byte,
+     * as they are replaced by {@code ?} when encoded.
+     */
+    static int utf8Length(String s) {
+        int bytes = 0;
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
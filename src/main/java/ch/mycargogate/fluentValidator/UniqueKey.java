@@ -0,0 +1,76 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * No two elements of a collection have the same key; each duplicate is reported with the index of the first element
+ * having its key. Integral keys are kept in a {@link LongIndexMap}, other keys in a hash map, null keys are ignored.
+ */
+final class UniqueKey<E> implements ElementAggregate<E> {
+    private final String keyName;
+    private final Function<E, ?> key;
+    private final ToLongFunction<E> longKey;
+
+    private UniqueKey(String keyName, Function<E, ?> key, ToLongFunction<E> longKey) {
+        this.keyName = keyName;
+        this.key = key;
+        this.longKey = longKey;
+    }
+
+    static <E> UniqueKey<E> of(String keyName, Function<E, ?> key) {
+        return new UniqueKey<>(keyName, key, null);
+    }
+
+    static <E> UniqueKey<E> ofLong(String keyName, ToLongFunction<E> key) {
+        return new UniqueKey<>(keyName, null, key);
+    }
+
+    @Override
+    public Accumulator<E> start(Object parent, int size) {
+        return new Accumulator<>() {
+            private LongIndexMap longs;
+            private Map<Object, Integer> objects;
+
+            @Override
+            public void accept(RuleContext context, int index, E element) {
+                if (element == null) return;
+
+                if (longKey != null) {
+                    long k = longKey.applyAsLong(element);
+                    check(context, index, k, longs().putIfAbsent(k, index));
+                    return;
+                }
+
+                var k = key.apply(element);
+                if (k == null) return;
+
+                if (k instanceof Integer || k instanceof Long || k instanceof Short || k instanceof Byte)
+                    check(context, index, k, longs().putIfAbsent(((Number) k).longValue(), index));
+                else if (k instanceof Character c)
+                    check(context, index, k, longs().putIfAbsent(c, index));
+                else {
+                    if (objects == null) objects = new HashMap<>(Math.max(16, size * 2));
+                    var first = objects.putIfAbsent(k, index);
+                    check(context, index, k, first == null ? -1 : first);
+                }
+            }
+
+            private LongIndexMap longs() {
+                if (longs == null) longs = new LongIndexMap(size);
+                return longs;
+            }
+
+            private void check(RuleContext context, int index, Object k, int first) {
+                if (first >= 0)
+                    context.report(ErrorCode.DUPLICATE, index, keyName, k, first);
+            }
+
+            @Override
+            public void finish(RuleContext context) {
+            }
+        };
+    }
+}
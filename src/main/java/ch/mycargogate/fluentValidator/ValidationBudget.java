@@ -0,0 +1,91 @@
+package ch.mycargogate.fluentValidator;
+
+import java.time.Duration;
+
+/**
+ * Time and rule evaluation limits of one validation, see {@link FluentValidator#validate(Object, ValidationBudget)}.
+ * <p>
+ * The budget is checked cooperatively before each rule and each collection element, each counting one evaluation;
+ * the checks of a rule only stop once the budget is exhausted, without counting. A slow rule is not interrupted,
+ * but no rule starts once the budget is exhausted. The result then holds the errors found so far and is incomplete.
+ * A budget is used by one validation, on the validating thread.
+ */
+public final class ValidationBudget {
+    private static final ThreadLocal<ValidationBudget> CURRENT = new ThreadLocal<>();
+    // the clock is read once every 16 checks
+    private static final int CLOCK_MASK = 15;
+
+    private final long deadline;
+    private final long maxEvaluations;
+    private long evaluations;
+    private boolean exhausted;
+
+    private ValidationBudget(long deadline, long maxEvaluations) {
+        this.deadline = deadline;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    /**
+     * Budget ending after the timeout, counted from now.
+     */
+    public static ValidationBudget within(Duration timeout) {
+        return of(timeout, Long.MAX_VALUE);
+    }
+
+    public static ValidationBudget ofRules(long maxEvaluations) {
+        return new ValidationBudget(Long.MAX_VALUE, maxEvaluations);
+    }
+
+    public static ValidationBudget of(Duration timeout, long maxEvaluations) {
+        return new ValidationBudget(System.nanoTime() + timeout.toNanos(), maxEvaluations);
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Counts an evaluation against the budget of the current validation.
+     *
+     * @return true if the validation must stop
+     */
+    static boolean exhausted() {
+        var budget = CURRENT.get();
+        return budget != null && budget.spend();
+    }
+
+    /**
+     * @return true if the budget of the current validation is exhausted, without counting an evaluation
+     */
+    static boolean stopped() {
+        var budget = CURRENT.get();
+        return budget != null && budget.exhausted;
+    }
+
+    private boolean spend() {
+        if (exhausted) return true;
+
+        if (++evaluations > maxEvaluations
+                || (deadline != Long.MAX_VALUE && (evaluations & CLOCK_MASK) == 1 && System.nanoTime() - deadline > 0))
+            exhausted = true;
+        return exhausted;
+    }
+
+    /**
+     * @return the budget of the enclosing validation, to restore with {@link #exit}
+     */
+    static ValidationBudget enter(ValidationBudget budget) {
+        var previous = CURRENT.get();
+        CURRENT.set(budget);
+        return previous;
+    }
+
+    static void exit(ValidationBudget previous) {
+        if (previous == null) CURRENT.remove();
+        else CURRENT.set(previous);
+    }
+}
@@ -1,28 +1,70 @@
 package ch.mycargogate.fluentValidator;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 
 // ==== ValidationError ====
 @Getter
-@RequiredArgsConstructor
 @ToString
 public class ValidationError {
 
     private final String holder;
     private final String field;
     private final String code;
-    private final String message;
+    private String message;
+
+    // Arguments of a message formatted on first read, after the full field name
+    @Getter(lombok.AccessLevel.NONE)
+    @ToString.Exclude
+    private final Object[] messageArgs;
+
+    public ValidationError(String holder, String field, String code, String message) {
+        this.holder = holder;
+        this.field = field;
+        this.code = code;
+        this.message = message;
+        this.messageArgs = null;
+    }
 
     public ValidationError(String holder, String field, ErrorCodeMessage ecm) {
+        this(holder, field, ecm.code(), ecm.message());
+    }
+
+    private ValidationError(String holder, String field, String code, Object[] messageArgs) {
         this.holder = holder;
         this.field = field;
-        this.code = ecm.code();
-        this.message = ecm.message();
+        this.code = code;
+        this.messageArgs = messageArgs;
+    }
+
+    /**
+     * Error whose message of the code is only formatted when read, e.g. not for the errors of a
+     * {@link CollapsedError}; the full field name is the first argument of the message.
+     */
+    static ValidationError deferred(String holder, String field, String code, Object... args) {
+        return new ValidationError(holder, field, code, args);
+    }
+
+    /**
+     * @return the arguments of a message formatted on read, null for a message given as text
+     */
+    Object[] getMessageArgs() {
+        return messageArgs;
+    }
+
+    public String getMessage() {
+        var m = message;
+        if (m == null && messageArgs != null) {
+            var args = new Object[messageArgs.length + 1];
+            args[0] = BaseValidator.fullFieldName(holder, field);
+            System.arraycopy(messageArgs, 0, args, 1, messageArgs.length);
+            message = m = ValidatorMessages.message(code, args);
+        }
+        return m;
     }
 
     public String getFullField() {
+        var message = getMessage();
         if (message == null && holder == null) return "";
 
         if ((message == null) != (holder == null))
@@ -32,6 +74,6 @@ public class ValidationError {
     }
 
     public String getFullMessage() {
-        return getFullField() + ": " + message;
+        return getFullField() + ": " + getMessage();
     }
 }
@@ -1,5 +1,6 @@
 package ch.mycargogate.fluentValidator;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.util.List;
@@ -10,9 +11,36 @@ public class ValidationResult {
     private final boolean valid;
     private final List<ValidationError> errors;
 
+    // Errors of each rule, kept by FluentValidator.revalidate
+    @Getter(AccessLevel.PACKAGE)
+    private final ValidationTrace trace;
+
+    // The validation budget ran out, the errors are those found so far
+    private final boolean incomplete;
+
     public ValidationResult(boolean valid, List<ValidationError> errors) {
+        this(valid, errors, null);
+    }
+
+    ValidationResult(boolean valid, List<ValidationError> errors, ValidationTrace trace) {
         this.valid = valid;
         this.errors = errors;
+        this.trace = trace;
+        this.incomplete = false;
+    }
+
+    private ValidationResult(List<ValidationError> errors, boolean incomplete) {
+        this.valid = false;
+        this.errors = errors;
+        this.trace = null;
+        this.incomplete = incomplete;
+    }
+
+    /**
+     * Result of a validation stopped by its budget, never valid.
+     */
+    public static ValidationResult incomplete(List<ValidationError> errors) {
+        return new ValidationResult(errors, true);
     }
 
     public static ValidationResult ok() {
@@ -25,6 +53,7 @@ public class ValidationResult {
 
     @Override
     public String toString() {
+        if (incomplete) return "ValidationResult: INCOMPLETE " + errors;
         return valid ? "ValidationResult: OK" : "ValidationResult: " + errors;
     }
 }
@@ -0,0 +1,91 @@
+package ch.mycargogate.fluentValidator;
+
+import java.util.*;
+
+/**
+ * Position of the errors of each rule in a validation result, kept to re-run only the rules affected by a change.
+ * <p>
+ * Segments follow the validation order of the rules, see {@link FlatRules}. Offsets are indexes in the error list
+ * of the result, the last one is the end of the list. Collection rules with element checks also keep the
+ * offsets of each element.
+ */
+final class ValidationTrace {
+    final FluentValidator<?> validator;
+    final String holder;
+    final int[] starts;
+    final int[][] elementStarts;
+    // Guard conditions evaluated on the traced object
+    byte[] guardStates;
+
+    ValidationTrace(FluentValidator<?> validator, String holder, int segments) {
+        this.validator = validator;
+        this.holder = holder;
+        this.starts = new int[segments + 1];
+        this.elementStarts = new int[segments][];
+    }
+
+    int start(int segment) {
+        return starts[segment];
+    }
+
+    int end(int segment) {
+        return starts[segment + 1];
+    }
+
+    /**
+     * Changed paths grouped by top level field: {@code "lines[3].quantity"} is element 3 of {@code lines}.
+     */
+    static final class Changes {
+        private final Map<String, BitSet> elements = new HashMap<>();
+        private final Set<String> fields = new HashSet<>();
+
+        Changes(Collection<String> paths) {
+            for (var path : paths) {
+                int end = 0;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') end++;
+                var field = path.substring(0, end);
+
+                int index = -1;
+                if (end < path.length() && path.charAt(end) == '[') {
+                    int close = path.indexOf(']', end);
+                    try {
+                        index = close < 0 ? -1 : Integer.parseInt(path, end + 1, close, 10);
+                    } catch (NumberFormatException e) {
+                        index = -1;
+                    }
+                }
+
+                if (index >= 0 && !fields.contains(field))
+                    elements.computeIfAbsent(field, f -> new BitSet()).set(index);
+                else {
+                    fields.add(field);
+                    elements.remove(field);
+                }
+            }
+        }
+
+        /**
+         * @return true if the field or any of its elements changed
+         */
+        boolean touches(String field) {
+            return fields.contains(field) || elements.containsKey(field);
+        }
+
+        boolean touchesAny(Collection<String> fields) {
+            for (var field : fields)
+                if (touches(field)) return true;
+            return false;
+        }
+
+        boolean touchesWhole(String field) {
+            return fields.contains(field);
+        }
+
+        /**
+         * @return the changed element indexes, null if none or if the whole field changed
+         */
+        BitSet elements(String field) {
+            return elements.get(field);
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Compact binary format for compiled validators.
+ * <p>
+ * A validator built once (fluent API or JSON reader) can be exported with {@link #write(FluentValidator, Path)}
+ * and loaded at startup with {@link #read(Path)}: the file is memory-mapped, field names and getter names are
+ * read from a shared string table and regexes are compiled once. No serialized lambda is inspected at load time,
+ * getters are bound lazily on the first validated object.
+ * <p>
+ * Only declarative rules can be exported, a validator holding custom predicates or rules is rejected.
+ * <pre>
+ * file       := magic version strings validators root
+ * strings    := count (length utf8)*
+ * validators := count validator*      (nested validators are written before the ones referencing them)
+ * </pre>
+ */
+@Slf4j
+public final class ValidatorBinaryFormat {
+    private static final int MAGIC = 0x46564231; // FVB1
+    // 3: min and max written with their number type
+    // 4: ignore-case flag of the enum values
+    // 5: regex engine
+    // 6: collapsed element errors of collections
+    private static final short VERSION = 6;
+
+    private static final int NONE = -1;
+
+    // Field flags
+    private static final int MANDATORY = 1;
+    private static final int FORBIDDEN = 1 << 1;
+    private static final int NOT_BLANK = 1 << 2;
+    private static final int HAS_MIN = 1 << 3;
+    private static final int HAS_MAX = 1 << 4;
+    private static final int HAS_MIN_LENGTH = 1 << 5;
+    private static final int HAS_MAX_LENGTH = 1 << 6;
+    private static final int HAS_NOT_BEFORE = 1 << 7;
+    private static final int HAS_NOT_AFTER = 1 << 8;
+    private static final int HAS_MAX_AGE = 1 << 9;
+    private static final int HAS_MIN_CODE_POINTS = 1 << 10;
+    private static final int HAS_MAX_CODE_POINTS = 1 << 11;
+    private static final int HAS_MAX_UTF8_BYTES = 1 << 12;
+    private static final int HAS_CHARSET = 1 << 13;
+    private static final int HAS_GROUPS = 1 << 14;
+
+    // Collection flags, after MANDATORY, FORBIDDEN and HAS_GROUPS
+    private static final int COLLAPSE_ERRORS = 1 << 15;
+
+    // Number types
+    private static final byte LONG = 0;
+    private static final byte DOUBLE = 1;
+    private static final byte DECIMAL = 2;
+
+    private ValidatorBinaryFormat() {
+    }
+
+    public static void write(FluentValidator<?> validator, Path path) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(validator, os);
+        }
+    }
+
+    public static void write(FluentValidator<?> validator, OutputStream os) throws IOException {
+        new Writer().write(validator, new DataOutputStream(os));
+    }
+
+    public static <T> FluentValidator<T> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    public static <T> FluentValidator<T> fromResource(String resource) {
+        try (InputStream is = Objects.requireNonNull(
+                ValidatorBinaryFormat.class.getClassLoader().getResourceAsStream(resource),
+                "Resource not found: " + resource)) {
+            return read(ByteBuffer.wrap(is.readAllBytes()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load compiled validator " + resource, e);
+        }
+    }
+
+    public static <T> FluentValidator<T> read(ByteBuffer buffer) {
+        var reader = new Reader(buffer);
+
+        @SuppressWarnings("unchecked")
+        var validator = (FluentValidator<T>) reader.read();
+        return validator;
+    }
+
+    // ==== Writer ====
+    private static class Writer {
+        private final Map<String, Integer> stringIds = new LinkedHashMap<>();
+        private final Map<FluentValidator<?>, Integer> validatorIds = new IdentityHashMap<>();
+        private final List<FluentValidator<?>> validators = new ArrayList<>();
+
+        void write(FluentValidator<?> root, DataOutputStream out) throws IOException {
+            collect(root, Collections.newSetFromMap(new IdentityHashMap<>()));
+
+            // The string table must be complete before the validators are written, encode them first
+            var body = new ByteArrayOutputStream();
+            var bodyOut = new DataOutputStream(body);
+            bodyOut.writeInt(validators.size());
+            for (var validator : validators)
+                writeValidator(validator, bodyOut);
+            bodyOut.writeInt(validatorIds.get(root));
+            bodyOut.flush();
+
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(stringIds.size());
+            for (var s : stringIds.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            body.writeTo(out);
+            out.flush();
+        }
+
+        private void collect(FluentValidator<?> validator, Set<FluentValidator<?>> visiting) {
+            if (validatorIds.containsKey(validator)) return;
+            if (!visiting.add(validator))
+                throw new IllegalStateException("Recursive validators cannot be exported");
+
+            if (validator.getExtendsValidator() != null)
+                collect(validator.getExtendsValidator(), visiting);
+
+            for (var field : validator.getFieldValidators()) {
+                if (field.getValidator() != null)
+                    collect(field.getValidator(), visiting);
+            }
+
+            for (var collection : validator.getCollectionRules()) {
+                if (collection.getElementValidator() != null)
+                    collect(collection.getElementValidator(), visiting);
+            }
+
+            validatorIds.put(validator, validators.size());
+            validators.add(validator);
+        }
+
+        private void writeValidator(FluentValidator<?> validator, DataOutputStream out) throws IOException {
+            if (!validator.getObjectValidators().isEmpty())
+                throw new IllegalStateException("Object rules are custom code and cannot be exported");
+
+            out.writeInt(validatorId(validator.getExtendsValidator()));
+
+            out.writeInt(validator.getFieldValidators().size());
+            for (var field : validator.getFieldValidators())
+                writeField(field, out);
+
+            out.writeInt(validator.getCollectionRules().size());
+            for (var collection : validator.getCollectionRules())
+                writeCollection(collection, out);
+        }
+
+        private void writeField(FieldValidator<?> field, DataOutputStream out) throws IOException {
+            if (!field.getRules().isEmpty() || !field.getNumericRanges().isEmpty())
+                throw new IllegalStateException("Field " + field.getFieldName() + ": custom rules and typed accessors cannot be exported");
+            if (field.getGuard() != null)
+                throw new IllegalStateException("Field " + field.getFieldName() + ": conditions are custom code and cannot be exported");
+
+            int flags = 0;
+            if (field.isMandatory()) flags |= MANDATORY;
+            if (field.isForbidden()) flags |= FORBIDDEN;
+            if (field.isNotBlank()) flags |= NOT_BLANK;
+            if (field.getMin() != null) flags |= HAS_MIN;
+            if (field.getMax() != null) flags |= HAS_MAX;
+            if (field.getMinLength() != null) flags |= HAS_MIN_LENGTH;
+            if (field.getMaxLength() != null) flags |= HAS_MAX_LENGTH;
+            if (field.getNotBefore() != null) flags |= HAS_NOT_BEFORE;
+            if (field.getNotAfter() != null) flags |= HAS_NOT_AFTER;
+            if (field.getMaxAge() != null) flags |= HAS_MAX_AGE;
+            if (field.getMinCodePoints() != null) flags |= HAS_MIN_CODE_POINTS;
+            if (field.getMaxCodePoints() != null) flags |= HAS_MAX_CODE_POINTS;
+            if (field.getMaxUtf8Bytes() != null) flags |= HAS_MAX_UTF8_BYTES;
+            if (field.getCharset() != null) flags |= HAS_CHARSET;
+            if (field.getGroups() != null) flags |= HAS_GROUPS;
+
+            out.writeInt(stringId(field.getFieldName()));
+            out.writeInt(stringId(getterName(field)));
+            out.writeInt(stringId(getterOwner(field)));
+            out.writeInt(flags);
+            if (field.getMin() != null) writeNumber(field.getMin(), out);
+            if (field.getMax() != null) writeNumber(field.getMax(), out);
+            if (field.getMinLength() != null) out.writeInt(field.getMinLength());
+            if (field.getMaxLength() != null) out.writeInt(field.getMaxLength());
+            if (field.getNotBefore() != null) out.writeLong(field.getNotBefore().toEpochDay());
+            if (field.getNotAfter() != null) out.writeLong(field.getNotAfter().toEpochDay());
+            if (field.getMaxAge() != null) out.writeLong(field.getMaxAge().getSeconds());
+            if (field.getMinCodePoints() != null) out.writeInt(field.getMinCodePoints());
+            if (field.getMaxCodePoints() != null) out.writeInt(field.getMaxCodePoints());
+            if (field.getMaxUtf8Bytes() != null) out.writeInt(field.getMaxUtf8Bytes());
+            if (field.getCharset() != null) {
+                var words = field.getCharset().words();
+                out.writeInt(words.length);
+                for (long word : words)
+                    out.writeLong(word);
+            }
+            if (field.getGroups() != null) writeGroups(field.getGroups(), out);
+            out.writeInt(stringId(field.getRegex()));
+            out.writeByte(field.getRegexEngine() == null ? NONE : field.getRegexEngine().ordinal());
+            out.writeInt(stringId(field.getCustomCode()));
+
+            var enumValues = field.getEnumValues();
+            out.writeInt(enumValues == null ? NONE : enumValues.size());
+            if (enumValues != null) {
+                out.writeBoolean(enumValues.isIgnoreCase());
+                for (var value : enumValues.values())
+                    out.writeInt(stringId(value));
+            }
+
+            out.writeInt(validatorId(field.getValidator()));
+        }
+
+        private void writeNumber(Number n, DataOutputStream out) throws IOException {
+            if (n instanceof Long l) {
+                out.writeByte(LONG);
+                out.writeLong(l);
+            } else if (n instanceof BigDecimal d) {
+                out.writeByte(DECIMAL);
+                out.writeInt(stringId(d.toString()));
+            } else {
+                out.writeByte(DOUBLE);
+                out.writeDouble(n.doubleValue());
+            }
+        }
+
+        private void writeCollection(CollectionValidator<?> collection, DataOutputStream out) throws IOException {
+            if (!collection.getRules().isEmpty() || !collection.getElementRules().isEmpty() || collection.hasAggregates()
+                    || collection.getGuard() != null)
+                throw new IllegalStateException("Collection " + collection.getFieldName() + ": custom rules and conditions cannot be exported");
+
+            int flags = 0;
+            if (collection.isMandatory()) flags |= MANDATORY;
+            if (collection.isForbidden()) flags |= FORBIDDEN;
+            if (collection.getGroups() != null) flags |= HAS_GROUPS;
+            if (collection.isCollapseErrors()) flags |= COLLAPSE_ERRORS;
+
+            out.writeInt(stringId(collection.getFieldName()));
+            out.writeInt(stringId(getterName(collection)));
+            out.writeInt(stringId(getterOwner(collection)));
+            out.writeInt(flags);
+            if (collection.getGroups() != null) writeGroups(collection.getGroups(), out);
+            out.writeInt(collection.getMinSize() == null ? NONE : collection.getMinSize());
+            out.writeInt(collection.getMaxSize() == null ? NONE : collection.getMaxSize());
+            out.writeInt(validatorId(collection.getElementValidator()));
+        }
+
+        private void writeGroups(Set<String> groups, DataOutputStream out) throws IOException {
+            out.writeInt(groups.size());
+            for (var group : groups)
+                out.writeInt(stringId(group));
+        }
+
+        private String getterName(ValueValidator<?> validator) {
+            if (validator.getGetter() != null) return validator.getGetter().getName();
+            return validator.getGetterName();
+        }
+
+        private String getterOwner(ValueValidator<?> validator) {
+            if (validator.getGetter() != null) return validator.getGetter().getDeclaringClass().getName();
+            return validator.getGetterOwner();
+        }
+
+        private int stringId(String s) {
+            if (s == null) return NONE;
+            return stringIds.computeIfAbsent(s, k -> stringIds.size());
+        }
+
+        private int validatorId(FluentValidator<?> validator) {
+            if (validator == null) return NONE;
+            return validatorIds.get(validator);
+        }
+    }
+
+    // ==== Reader ====
+    private static class Reader {
+        private final ByteBuffer buffer;
+        private String[] strings;
+        private FluentValidator<?>[] validators;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+        }
+
+        FluentValidator<?> read() {
+            if (buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a compiled fluent validator");
+
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Unsupported compiled validator version: " + version);
+
+            strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            validators = new FluentValidator<?>[buffer.getInt()];
+            for (int i = 0; i < validators.length; i++)
+                validators[i] = readValidator();
+
+            log.debug("compiled validators loaded: " + validators.length + " validators, " + strings.length + " strings");
+            return validators[buffer.getInt()];
+        }
+
+        private FluentValidator<Object> readValidator() {
+            var validator = new FluentValidator<Object>();
+
+            var extendsValidator = validator(buffer.getInt());
+            if (extendsValidator != null)
+                validator.setExtendsValidator(extendsValidator);
+
+            int fieldCount = buffer.getInt();
+            for (int i = 0; i < fieldCount; i++)
+                validator.getFieldValidators().add(readField());
+
+            int collectionCount = buffer.getInt();
+            for (int i = 0; i < collectionCount; i++)
+                validator.getCollectionRules().add(readCollection());
+
+            return validator;
+        }
+
+        private FieldValidator<Object> readField() {
+            var field = new FieldValidator<Object>(null, string(buffer.getInt()));
+            field.setGetterName(string(buffer.getInt()));
+            field.setGetterOwner(string(buffer.getInt()));
+
+            int flags = buffer.getInt();
+            field.setMandatory((flags & MANDATORY) != 0);
+            field.setForbidden((flags & FORBIDDEN) != 0);
+            field.setNotBlank((flags & NOT_BLANK) != 0);
+            if ((flags & HAS_MIN) != 0) field.setMin(readNumber());
+            if ((flags & HAS_MAX) != 0) field.setMax(readNumber());
+            if ((flags & HAS_MIN_LENGTH) != 0) field.setMinLength(buffer.getInt());
+            if ((flags & HAS_MAX_LENGTH) != 0) field.setMaxLength(buffer.getInt());
+            if ((flags & HAS_NOT_BEFORE) != 0) field.setNotBefore(LocalDate.ofEpochDay(buffer.getLong()));
+            if ((flags & HAS_NOT_AFTER) != 0) field.setNotAfter(LocalDate.ofEpochDay(buffer.getLong()));
+            if ((flags & HAS_MAX_AGE) != 0) field.setMaxAge(Duration.ofSeconds(buffer.getLong()));
+            if ((flags & HAS_MIN_CODE_POINTS) != 0) field.setMinCodePoints(buffer.getInt());
+            if ((flags & HAS_MAX_CODE_POINTS) != 0) field.setMaxCodePoints(buffer.getInt());
+            if ((flags & HAS_MAX_UTF8_BYTES) != 0) field.setMaxUtf8Bytes(buffer.getInt());
+            if ((flags & HAS_CHARSET) != 0) {
+                var words = new long[buffer.getInt()];
+                for (int i = 0; i < words.length; i++)
+                    words[i] = buffer.getLong();
+                field.setCharset(CharacterSet.ofWords(words));
+            }
+            if ((flags & HAS_GROUPS) != 0) readGroups(field);
+            var regex = string(buffer.getInt());
+            byte engine = buffer.get();
+            if (engine != NONE) field.setRegexEngine(RegexEngine.values()[engine]);
+            field.setRegex(regex);
+            field.setCustomCode(string(buffer.getInt()));
+
+            int enumCount = buffer.getInt();
+            if (enumCount != NONE) {
+                boolean ignoreCase = buffer.get() != 0;
+                var enumValues = new String[enumCount];
+                for (int i = 0; i < enumCount; i++)
+                    enumValues[i] = string(buffer.getInt());
+                field.setEnumValues(EnumValues.of(Arrays.asList(enumValues), ignoreCase));
+            }
+
+            field.setValidator(validator(buffer.getInt()));
+            return field;
+        }
+
+        private CollectionValidator<Object> readCollection() {
+            var collection = new CollectionValidator<Object>(null, string(buffer.getInt()));
+            collection.setGetterName(string(buffer.getInt()));
+            collection.setGetterOwner(string(buffer.getInt()));
+
+            int flags = buffer.getInt();
+            collection.setMandatory((flags & MANDATORY) != 0);
+            collection.setForbidden((flags & FORBIDDEN) != 0);
+            collection.setCollapseErrors((flags & COLLAPSE_ERRORS) != 0);
+            if ((flags & HAS_GROUPS) != 0) readGroups(collection);
+
+            int minSize = buffer.getInt();
+            if (minSize != NONE) collection.setMinSize(minSize);
+            int maxSize = buffer.getInt();
+            if (maxSize != NONE) collection.setMaxSize(maxSize);
+
+            collection.setElementValidator(validator(buffer.getInt()));
+            return collection;
+        }
+
+        private void readGroups(BaseValidator<?> rule) {
+            var groups = new String[buffer.getInt()];
+            for (int i = 0; i < groups.length; i++)
+                groups[i] = string(buffer.getInt());
+            rule.addGroups(groups);
+        }
+
+        private Number readNumber() {
+            byte type = buffer.get();
+            return switch (type) {
+                case LONG -> buffer.getLong();
+                case DECIMAL -> new BigDecimal(string(buffer.getInt()));
+                case DOUBLE -> buffer.getDouble();
+                default -> throw new IllegalArgumentException("Invalid number type: " + type);
+            };
+        }
+
+        private String string(int id) {
+            return id == NONE ? null : strings[id];
+        }
+
+        @SuppressWarnings("unchecked")
+        private <V> FluentValidator<V> validator(int id) {
+            return id == NONE ? null : (FluentValidator<V>) validators[id];
+        }
+    }
+}
@@ -5,16 +5,20 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Enumeration;
+import java.util.Formatter;
 import java.util.Properties;
 
 @Slf4j
 public class ValidatorMessages {
+    // merged from all the class path resources with this name
+    static final String RESOURCE = "fluent-validator-messages.properties";
+
     private static Properties properties;
 
     static {
         try {
             ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-            Enumeration<URL> resources = classLoader.getResources("fluent-validator-messages.properties");
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE);
 
             properties = new Properties();
 
@@ -54,4 +58,28 @@ public class ValidatorMessages {
             return "INVALID LABEL code=" + code;
         }
     }
+
+    /**
+     * Appends the message of the code to a formatter of a {@link StringBuilder}, without an intermediate string;
+     * a {@link FieldPath} argument appends itself.
+     */
+    static void appendMessage(Formatter formatter, String code, Object... args) {
+        var out = (StringBuilder) formatter.out();
+        var m = properties.getProperty(code);
+
+        if( m == null ) {
+            log.error("Cannot find error message for the code " + code);
+            out.append("INVALID LABEL code=").append(code);
+            return;
+        }
+
+        int start = out.length();
+        try {
+            formatter.format(m, args);
+        } catch(Exception e) {
+            log.error("Invalid message format: code=" + code + ", message="+ m, e);
+            out.setLength(start);
+            out.append("INVALID LABEL code=").append(code);
+        }
+    }
 }
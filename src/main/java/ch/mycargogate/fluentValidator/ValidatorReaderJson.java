@@ -1,9 +1,11 @@
 package ch.mycargogate.fluentValidator;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Objects;
 
@@ -27,7 +29,8 @@ public class ValidatorReaderJson {
                     getClass().getClassLoader().getResourceAsStream(resource),
                     "Resource not found: " + resource
             );
-            ObjectMapper mapper = new ObjectMapper();
+            // Decimal bounds are kept exact
+            ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
             JsonNode root = mapper.readTree(is);
             FluentValidator.Builder<Object> validatorBuilder = FluentValidator.builder();
 
@@ -47,17 +50,26 @@ public class ValidatorReaderJson {
                 FieldValidator.Builder<Object, ?> fr = validatorBuilder.fieldRule(schema, f.get("name").asText());
                 if (f.has("mandatory") && f.get("mandatory").asBoolean()) fr.mandatory();
                 if (f.has("notBlank") && f.get("notBlank").asBoolean()) fr.notBlank();
-                if (f.has("min")) fr.min(f.get("min").asDouble());
-                if (f.has("max")) fr.max(f.get("max").asDouble());
+                if (f.has("min")) fr.min(f.get("min").numberValue());
+                if (f.has("max")) fr.max(f.get("max").numberValue());
                 if (f.has("minLength")) fr.minLength(f.get("minLength").asInt());
                 if (f.has("maxLength")) fr.maxLength(f.get("maxLength").asInt());
+                if (f.has("regexEngine")) fr.regexEngine(RegexEngine.valueOf(f.get("regexEngine").asText()));
                 if (f.has("regex")) fr.regex(f.get("regex").asText());
                 if (f.has("enum")) {
+                    var values = new ArrayList<String>();
                     Iterator<JsonNode> it = f.get("enum").elements();
                     while (it.hasNext()) {
                         // just simple example: allow string enums
-                        fr.inEnum(it.next().asText());
+                        values.add(it.next().asText());
                     }
+                    fr.inEnum(values);
+                }
+                if (f.has("enumFile")) fr.inEnumFromResource(f.get("enumFile").asText(), false);
+                if (f.has("groups")) {
+                    var groups = new ArrayList<String>();
+                    f.get("groups").elements().forEachRemaining(g -> groups.add(g.asText()));
+                    fr.groups(groups.toArray(new String[0]));
                 }
                 fr.done();
             }
@@ -8,10 +8,17 @@ import java.util.List;
 
 @Getter
 @Setter
-class ValueValidator<F> extends BaseValidator<F> {
+abstract class ValueValidator<F> extends BaseValidator<F> {
     private Method getter;
     private boolean mandatory = false;
 
+    // Name of the getter when already known (e.g. loaded from a compiled validator), avoids the get/is scan
+    private String getterName;
+
+    // Class declaring the getter and class declaring the getter reference, known when built from a GetterRef
+    private String getterOwner;
+    private String capturingClass;
+
     public ValueValidator(String fieldName) {
         super(fieldName);
     }
@@ -50,21 +57,16 @@ class ValueValidator<F> extends BaseValidator<F> {
             // Cache it
             synchronized (this) {
 
-                for (var getIs : new String[]{"get", "is"}) {
-                    var fieldNameUpper = getFieldNameFirstUpper();
-                    String getterName = getIs + fieldNameUpper;
-
-                    Class<?> theClass = clazz;
-                    do {
-
-                        try {
-                            this.getter = theClass.getDeclaredMethod(getterName);
-                        } catch (NoSuchMethodException e) {
-                        }
+                if (this.getterName != null)
+                    this.getter = findDeclaredMethod(clazz, this.getterName);
 
-                    } while ((theClass = theClass.getSuperclass()) != null);
+                if (this.getter == null) {
+                    for (var getIs : new String[]{"get", "is"}) {
+                        var fieldNameUpper = getFieldNameFirstUpper();
+                        this.getter = findDeclaredMethod(clazz, getIs + fieldNameUpper);
 
-                    if (this.getter != null) break;
+                        if (this.getter != null) break;
+                    }
                 }
 
                 if (getter == null)
@@ -75,14 +77,35 @@ class ValueValidator<F> extends BaseValidator<F> {
         return this.getter;
     }
 
+    private static Method findDeclaredMethod(Class<?> clazz, String methodName) {
+        Class<?> theClass = clazz;
+        do {
+
+            try {
+                return theClass.getDeclaredMethod(methodName);
+            } catch (NoSuchMethodException e) {
+            }
+
+        } while ((theClass = theClass.getSuperclass()) != null);
+
+        return null;
+    }
+
+    @Override
+    boolean sameChecks(BaseValidator<?> other) {
+        return super.sameChecks(other) && mandatory == ((ValueValidator<?>) other).mandatory;
+    }
+
     @Override
     protected void doValidate(String holder, F value, List<ValidationError> errors) {
         super.doValidate(holder, value, errors);
+        checkMandatory(holder, value, errors);
+    }
 
+    void checkMandatory(String holder, F value, List<ValidationError> errors) {
         if (value == null) {
             if (isMandatory()) {
-                String message = ValidatorMessages.message(ErrorCode.MISSING_VALUE, getFullFieldName(holder));
-                addErrorMessage(holder, errors, ErrorCode.MISSING_VALUE,message);
+                addError(holder, errors, ErrorCode.MISSING_VALUE);
             }
         }
     }
@@ -0,0 +1,22 @@
+package ch.mycargogate.fluentValidator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates at compile time a reflection-free validator for the annotated class.
+ * <p>
+ * The generated class is named after the annotated class with the {@code Validator} suffix
+ * (or {@link #name()}) and is placed in the same package. Its checks are the field annotations
+ * of this package, evaluated with direct getter calls.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateValidator {
+    /**
+     * Simple name of the generated class, defaults to the annotated class name followed by {@code Validator}.
+     */
+    String name() default "";
+}
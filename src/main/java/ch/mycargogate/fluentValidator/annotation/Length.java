@@ -0,0 +1,17 @@
+package ch.mycargogate.fluentValidator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Length bounds of a string value.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Length {
+    int min() default 0;
+
+    int max() default Integer.MAX_VALUE;
+}
@@ -0,0 +1,68 @@
+package ch.mycargogate.fluentValidator.nativeimage;
+
+import ch.mycargogate.fluentValidator.NativeImageMetadata;
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+import org.graalvm.nativeimage.hosted.RuntimeResourceAccess;
+import org.graalvm.nativeimage.hosted.RuntimeSerialization;
+
+import java.lang.reflect.Method;
+
+/**
+ * GraalVM native-image feature registering, at image build time, the reflection used by the validators
+ * supplied by the {@code FluentValidatorProvider} services: getters, validated classes, classes declaring
+ * the getter references, message bundles and enum value files.
+ * <p>
+ * Not enabled by default, as it loads the provider services at image build time; enable it with
+ * {@code --features=ch.mycargogate.fluentValidator.nativeimage.FluentValidatorFeature}.
+ */
+public class FluentValidatorFeature implements Feature {
+
+    @Override
+    public String getDescription() {
+        return "Registers the getters used by fluent validators";
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess access) {
+        var classLoader = access.getApplicationClassLoader();
+        var metadata = NativeImageMetadata.fromProviders(classLoader);
+
+        for (var entry : metadata.getGetters().entrySet()) {
+            Class<?> clazz = access.findClassByName(entry.getKey());
+            if (clazz == null) continue;
+
+            RuntimeReflection.register(clazz);
+            for (var getterName : entry.getValue()) {
+                var getter = findGetter(clazz, getterName);
+                if (getter != null)
+                    RuntimeReflection.register(getter);
+            }
+        }
+
+        for (var type : metadata.getTypes()) {
+            Class<?> clazz = access.findClassByName(type);
+            if (clazz != null)
+                RuntimeReflection.register(clazz);
+        }
+
+        for (var capturing : metadata.getLambdaCapturingClasses()) {
+            Class<?> clazz = access.findClassByName(capturing);
+            if (clazz != null)
+                RuntimeSerialization.registerLambdaCapturingClass(clazz);
+        }
+
+        for (var resource : metadata.getResources())
+            RuntimeResourceAccess.addResource(classLoader.getUnnamedModule(), resource);
+    }
+
+    private static Method findGetter(Class<?> clazz, String name) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredMethod(name);
+            } catch (NoSuchMethodException e) {
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,336 @@
+package ch.mycargogate.fluentValidator.processor;
+
+import ch.mycargogate.fluentValidator.annotation.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Annotation processor generating reflection-free validators for classes annotated with {@link GenerateValidator}.
+ * <p>
+ * The generated validator reads every constrained property with a direct getter call and inlines its checks.
+ * Errors use the same codes and messages as {@code FluentValidator} and are returned as a {@code ValidationResult}.
+ * <p>
+ * The processor is not registered as a service, so it never runs just because the library is on the class path. Put
+ * the library on the processor path ({@code annotationProcessorPaths}) and name this class with {@code -processor}
+ * ({@code annotationProcessors}).
+ */
+@SupportedAnnotationTypes("ch.mycargogate.fluentValidator.annotation.GenerateValidator")
+public class ValidatorProcessor extends AbstractProcessor {
+
+    private static final String BASE_PACKAGE = "ch.mycargogate.fluentValidator";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateValidator.class)) {
+            if (!(element instanceof TypeElement type)) continue;
+
+            try {
+                generate(type);
+            } catch (IOException e) {
+                error(type, "Cannot generate validator: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        var name = type.getAnnotation(GenerateValidator.class).name();
+        var simpleName = name.isEmpty() ? type.getSimpleName() + "Validator" : name;
+        var qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        var typeName = type.getQualifiedName().toString();
+
+        var properties = collectProperties(type);
+
+        var constants = new StringBuilder();
+        var body = new StringBuilder();
+        for (var property : properties)
+            generateProperty(property, constants, body);
+
+        try (Writer w = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            if (!packageName.isEmpty())
+                w.write("package " + packageName + ";\n\n");
+
+            w.write("import " + BASE_PACKAGE + ".*;\n\n");
+            w.write("import java.util.ArrayList;\n");
+            w.write("import java.util.List;\n\n");
+            w.write("@javax.annotation.processing.Generated(\"" + getClass().getName() + "\")\n");
+            w.write("public final class " + simpleName + " {\n");
+            w.write(constants.toString());
+            w.write("\n");
+            w.write("    public ValidationResult validate(" + typeName + " object) {\n");
+            w.write("        String holder = object instanceof HolderNode node\n");
+            w.write("                ? object.getClass().getSimpleName() + \"[\" + node.holderNodeName() + \"]\"\n");
+            w.write("                : object.getClass().getSimpleName();\n");
+            w.write("        return validate(holder, object);\n");
+            w.write("    }\n\n");
+            w.write("    public ValidationResult validate(String holder, " + typeName + " object) {\n");
+            w.write("        List<ValidationError> errors = new ArrayList<>();\n");
+            w.write(body.toString());
+            w.write("\n");
+            w.write("        return errors.isEmpty() ? ValidationResult.ok() : ValidationResult.fail(errors);\n");
+            w.write("    }\n\n");
+            w.write("    private static ValidationError error(String holder, String field, String code, Object... args) {\n");
+            w.write("        Object[] varargs = new Object[args.length + 1];\n");
+            w.write("        varargs[0] = holder == null ? field : holder + \".\" + field;\n");
+            w.write("        System.arraycopy(args, 0, varargs, 1, args.length);\n");
+            w.write("        return new ValidationError(holder, field, new ErrorCodeMessage(code, ValidatorMessages.message(code, varargs)));\n");
+            w.write("    }\n");
+            w.write("}\n");
+        }
+    }
+
+    private record Property(Element element, String name, String accessor, TypeMirror type) {
+    }
+
+    private List<Property> collectProperties(TypeElement type) {
+        var properties = new LinkedHashMap<String, Property>();
+        boolean record = type.getKind() == ElementKind.RECORD;
+
+        // Super classes first, subclasses may redeclare a property
+        var hierarchy = new ArrayDeque<TypeElement>();
+        for (TypeElement t = type; t != null; t = superClass(t))
+            hierarchy.push(t);
+
+        for (var t : hierarchy) {
+            for (Element e : t.getEnclosedElements()) {
+                if (!isConstrained(e) || e.getModifiers().contains(Modifier.STATIC)) continue;
+
+                if (e.getKind() == ElementKind.FIELD) {
+                    var name = e.getSimpleName().toString();
+                    var accessor = record ? name : getterName(name, e.asType());
+                    properties.put(name, new Property(e, name, accessor, e.asType()));
+                } else if (e.getKind() == ElementKind.METHOD) {
+                    var method = (ExecutableElement) e;
+                    if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID) {
+                        error(e, "Constraints can only be declared on getters");
+                        continue;
+                    }
+                    var accessor = method.getSimpleName().toString();
+                    properties.put(propertyName(accessor), new Property(e, propertyName(accessor), accessor, method.getReturnType()));
+                }
+            }
+        }
+
+        return new ArrayList<>(properties.values());
+    }
+
+    private TypeElement superClass(TypeElement type) {
+        var superType = type.getSuperclass();
+        if (superType.getKind() != TypeKind.DECLARED) return null;
+        var element = (TypeElement) ((DeclaredType) superType).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    private boolean isConstrained(Element e) {
+        return e.getAnnotation(Mandatory.class) != null
+                || e.getAnnotation(NotBlank.class) != null
+                || e.getAnnotation(Length.class) != null
+                || e.getAnnotation(Range.class) != null
+                || e.getAnnotation(Regex.class) != null
+                || e.getAnnotation(OneOf.class) != null;
+    }
+
+    private static String getterName(String fieldName, TypeMirror type) {
+        var prefix = type.getKind() == TypeKind.BOOLEAN ? "is" : "get";
+        return prefix + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    }
+
+    private static String propertyName(String accessor) {
+        if (accessor.startsWith("get") && accessor.length() > 3)
+            return Character.toLowerCase(accessor.charAt(3)) + accessor.substring(4);
+        if (accessor.startsWith("is") && accessor.length() > 2)
+            return Character.toLowerCase(accessor.charAt(2)) + accessor.substring(3);
+        return accessor;
+    }
+
+    private void generateProperty(Property p, StringBuilder constants, StringBuilder body) {
+        var e = p.element();
+        var field = literal(p.name());
+        var primitive = p.type().getKind().isPrimitive();
+        var typeName = processingEnv.getTypeUtils().erasure(p.type()).toString();
+        var isString = typeName.equals("java.lang.String");
+        var isEnum = !primitive && processingEnv.getTypeUtils().asElement(p.type()) != null
+                && processingEnv.getTypeUtils().asElement(p.type()).getKind() == ElementKind.ENUM;
+
+        var checks = new StringBuilder();
+        String indent = primitive ? "            " : "                ";
+
+        var notBlank = e.getAnnotation(NotBlank.class);
+        var length = e.getAnnotation(Length.class);
+        var regex = e.getAnnotation(Regex.class);
+        if ((notBlank != null || length != null || regex != null) && !isString) {
+            error(e, "@NotBlank, @Length and @Regex only apply to String properties");
+            return;
+        }
+
+        if (notBlank != null)
+            checks.append(indent).append("if (value.isBlank()) errors.add(error(holder, ").append(field)
+                    .append(", ErrorCode.NOT_BLANK, value));\n");
+
+        if (length != null) {
+            if (length.min() > 0)
+                checks.append(indent).append("if (value.length() < ").append(length.min()).append(") errors.add(error(holder, ")
+                        .append(field).append(", ErrorCode.LENGTH_LOWER_THAN, value.length(), ").append(length.min()).append("));\n");
+            if (length.max() != Integer.MAX_VALUE)
+                checks.append(indent).append("if (value.length() > ").append(length.max()).append(") errors.add(error(holder, ")
+                        .append(field).append(", ErrorCode.LENGTH_GREATER_THAN, value.length(), ").append(length.max()).append("));\n");
+        }
+
+        if (regex != null) {
+            try {
+                Pattern.compile(regex.value());
+            } catch (PatternSyntaxException ex) {
+                error(e, "Invalid regex: " + ex.getMessage());
+                return;
+            }
+            var constant = constantName(p.name(), "PATTERN");
+            constants.append("    private static final java.util.regex.Pattern ").append(constant)
+                    .append(" = java.util.regex.Pattern.compile(").append(literal(regex.value())).append(");\n");
+            checks.append(indent).append("if (!").append(constant).append(".matcher(value).matches()) errors.add(error(holder, ")
+                    .append(field).append(", ErrorCode.REGEX_DONT_MATCH, value, ").append(constant).append(".pattern()));\n");
+        }
+
+        var oneOf = e.getAnnotation(OneOf.class);
+        if (oneOf != null) {
+            if (!isString && !isEnum) {
+                error(e, "@OneOf only applies to String and enum properties");
+                return;
+            }
+            var constant = constantName(p.name(), "VALUES");
+            constants.append("    private static final java.util.Set<String> ").append(constant).append(" = java.util.Set.of(");
+            for (int i = 0; i < oneOf.value().length; i++)
+                constants.append(i == 0 ? "" : ", ").append(literal(oneOf.value()[i]));
+            constants.append(");\n");
+            checks.append(indent).append("if (!").append(constant).append(".contains(value").append(isEnum ? ".name()" : "")
+                    .append(")) errors.add(error(holder, ").append(field).append(", ErrorCode.MUST_BE_ONE_OF, value, ")
+                    .append(constant).append("));\n");
+        }
+
+        var range = e.getAnnotation(Range.class);
+        if (range != null && !generateRange(p, range, typeName, indent, constants, checks))
+            return;
+
+        var mandatory = e.getAnnotation(Mandatory.class) != null;
+        if (checks.isEmpty() && !mandatory) return;
+
+        body.append("\n        // ").append(p.name()).append("\n");
+        body.append("        {\n");
+        body.append("            var value = object.").append(p.accessor()).append("();\n");
+        if (primitive) {
+            body.append(checks);
+        } else if (!mandatory) {
+            body.append("            if (value != null) {\n").append(checks).append("            }\n");
+        } else {
+            body.append("            if (value == null) {\n");
+            body.append("                errors.add(error(holder, ").append(field).append(", ErrorCode.MISSING_VALUE));\n");
+            body.append("            }");
+            if (!checks.isEmpty())
+                body.append(" else {\n").append(checks).append("            }");
+            body.append("\n");
+        }
+        body.append("        }\n");
+    }
+
+    private boolean generateRange(Property p, Range range, String typeName, String indent,
+                                  StringBuilder constants, StringBuilder checks) {
+        var kind = p.type().getKind();
+        boolean decimal = typeName.equals("java.math.BigDecimal");
+        boolean floating = kind == TypeKind.DOUBLE || kind == TypeKind.FLOAT
+                || typeName.equals("java.lang.Double") || typeName.equals("java.lang.Float");
+        boolean integral = kind == TypeKind.INT || kind == TypeKind.LONG || kind == TypeKind.SHORT || kind == TypeKind.BYTE
+                || typeName.equals("java.lang.Integer") || typeName.equals("java.lang.Long")
+                || typeName.equals("java.lang.Short") || typeName.equals("java.lang.Byte");
+
+        if (!decimal && !floating && !integral) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@Range only applies to numeric properties", p.element());
+            return false;
+        }
+
+        String[][] bounds = {{range.min(), "<", "ErrorCode.LOWER_THAN_MIN", "MIN"}, {range.max(), ">", "ErrorCode.GREATER_THAN_MAX", "MAX"}};
+        for (var bound : bounds) {
+            if (bound[0].isEmpty()) continue;
+
+            BigDecimal value;
+            try {
+                value = new BigDecimal(bound[0].trim());
+            } catch (NumberFormatException ex) {
+                error(p.element(), "Invalid @Range bound: " + bound[0]);
+                return false;
+            }
+
+            String test, valueArg, boundArg;
+            if (decimal) {
+                var constant = constantName(p.name(), bound[3]);
+                constants.append("    private static final java.math.BigDecimal ").append(constant)
+                        .append(" = new java.math.BigDecimal(").append(literal(value.toPlainString())).append(");\n");
+                test = "value.compareTo(" + constant + ") " + bound[1] + " 0";
+                valueArg = "value.toPlainString()";
+                boundArg = constant + ".toPlainString()";
+            } else if (integral && value.stripTrailingZeros().scale() <= 0) {
+                test = "value " + bound[1] + " " + value.longValueExact() + "L";
+                valueArg = "value";
+                boundArg = value.longValueExact() + "L";
+            } else {
+                // NaN is outside of both bounds
+                test = "!(value " + (bound[1].equals("<") ? ">=" : "<=") + " " + value.doubleValue() + "d)";
+                valueArg = "value";
+                boundArg = value.doubleValue() + "d";
+            }
+
+            checks.append(indent).append("if (").append(test).append(") errors.add(error(holder, ").append(literal(p.name()))
+                    .append(", ").append(bound[2]).append(", ").append(valueArg).append(", ").append(boundArg).append("));\n");
+        }
+        return true;
+    }
+
+    private static String constantName(String property, String suffix) {
+        var sb = new StringBuilder();
+        for (char c : property.toCharArray()) {
+            if (Character.isUpperCase(c)) sb.append('_');
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.append('_').append(suffix).toString();
+    }
+
+    private static String literal(String s) {
+        var sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private void error(Element e, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+}
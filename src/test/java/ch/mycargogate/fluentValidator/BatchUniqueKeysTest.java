@@ -0,0 +1,102 @@
+package ch.mycargogate.fluentValidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchUniqueKeysTest {
+
+    @Test
+    void duplicates_report_first_position() throws Exception {
+        try (var keys = new BatchUniqueKeys()) {
+            for (int i = 0; i < 100_000; i++)
+                assertEquals(-1, keys.addIfAbsent("SHP-" + i));
+
+            assertEquals(42, keys.addIfAbsent("SHP-42"));
+            assertEquals(-1, keys.addIfAbsent("SHP-é"));
+            assertEquals(100_001, keys.addIfAbsent("SHP-é"));
+            assertEquals(100_001, keys.size());
+            assertFalse(keys.isSpilled());
+        }
+    }
+
+    @Test
+    void spills_to_mapped_file_over_threshold(@TempDir Path dir) throws Exception {
+        try (var keys = new BatchUniqueKeys(64 << 10, dir)) {
+            for (int i = 0; i < 200_000; i++)
+                assertEquals(-1, keys.addIfAbsent(Integer.toString(i)));
+            for (int i = 0; i < 200_000; i += 997)
+                assertEquals(i, keys.addIfAbsent(Integer.toString(i)));
+            assertTrue(keys.isSpilled());
+        }
+    }
+
+    @Test
+    void positions_given_by_the_caller() throws Exception {
+        try (var keys = new BatchUniqueKeys()) {
+            assertEquals(-1, keys.addIfAbsent("A", 7));
+            // the same object validated again
+            assertEquals(-1, keys.addIfAbsent("A", 7));
+            assertEquals(7, keys.addIfAbsent("A", 3));
+            assertEquals(1, keys.size());
+        }
+    }
+
+    @Test
+    void released_slot_tables_are_not_counted(@TempDir Path dir) throws Exception {
+        // 12 MB live: 2 arena chunks and the last slot table, the previous tables add up to 4 MB more
+        try (var keys = new BatchUniqueKeys(13 << 20, dir)) {
+            for (int i = 0; i < 200_000; i++)
+                keys.addIfAbsent(Integer.toString(i));
+            assertFalse(keys.isSpilled());
+        }
+    }
+
+    @Test
+    void record_numbers_under_batch_validator(@TempDir Path dir) throws Exception {
+        record Shipment(String id) {
+            public String getId() { return id; }
+        }
+
+        var input = Files.writeString(dir.resolve("shipments.txt"), "A\nB\nA\nC\nB\n");
+        var log = dir.resolve("errors.csv");
+        try (var ids = new BatchUniqueKeys()) {
+            var validator = FluentValidator.<Shipment>builder()
+                    .fieldRule(Shipment::getId).uniqueInBatch(ids).done()
+                    .build();
+            BatchValidator.builder(validator, RecordDecoder.lines(Shipment::new)).parallelism(1).errorLog(log).build().run(input);
+        }
+
+        var lines = Files.readAllLines(log);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(1).startsWith("2,") && lines.get(1).endsWith("position 0 of the batch"), lines.get(1));
+        assertTrue(lines.get(2).startsWith("4,") && lines.get(2).endsWith("position 1 of the batch"), lines.get(2));
+    }
+
+    @Test
+    void unique_in_batch_rule() throws Exception {
+        record Shipment(String id) {
+            public String getId() { return id; }
+        }
+
+        try (var ids = new BatchUniqueKeys()) {
+            var validator = FluentValidator.<Shipment>builder()
+                    .fieldRule(Shipment::getId).uniqueInBatch(ids).done()
+                    .build();
+
+            var errors = new ArrayList<ValidationError>();
+            for (var id : new String[]{"A", "B", "A", "C", "B"})
+                validator.validateInto(new Shipment(id), errors);
+
+            assertEquals(2, errors.size());
+            assertEquals(ErrorCode.DUPLICATE_IN_BATCH, errors.get(0).getCode());
+            assertEquals("Shipment.id- Value 'A' was already seen at position 0 of the batch", errors.get(0).getMessage());
+            assertEquals("Shipment.id- Value 'B' was already seen at position 1 of the batch", errors.get(1).getMessage());
+        }
+    }
+}
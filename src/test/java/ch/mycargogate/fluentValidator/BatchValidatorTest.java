@@ -0,0 +1,105 @@
+package ch.mycargogate.fluentValidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchValidatorTest {
+
+    record Line(String id, Integer quantity) {
+        public String getId() { return id; }
+        public Integer getQuantity() { return quantity; }
+
+        static Line parse(String line) {
+            var parts = line.split(";");
+            return new Line(parts[0], Integer.valueOf(parts[1]));
+        }
+    }
+
+    private static final FluentValidator<Line> VALIDATOR = FluentValidator.<Line>builder()
+            .fieldRule(Line::getQuantity).min(1).done()
+            .build();
+
+    // 1000 lines, every 10th line has a quantity of 0
+    private static Path input(Path dir) throws Exception {
+        var text = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+            text.append("L").append(i).append(';').append(i % 10 == 3 ? 0 : i + 1).append(i % 2 == 0 ? "\n" : "\r\n");
+        return Files.writeString(dir.resolve("lines.txt"), text.toString().stripTrailing());
+    }
+
+    @Test
+    void validates_file_in_parallel_chunks(@TempDir Path dir) throws Exception {
+        var log = dir.resolve("errors.csv");
+        var result = BatchValidator.builder(VALIDATOR, RecordDecoder.lines(Line::parse))
+                .chunkSize(64)
+                .parallelism(4)
+                .errorLog(log)
+                .build()
+                .run(input(dir));
+
+        assertEquals(1000, result.getRecords());
+        assertEquals(100, result.getInvalidRecords());
+        assertEquals(100, result.getErrors());
+        assertFalse(result.isResumed());
+
+        var lines = Files.readAllLines(log);
+        assertEquals(101, lines.size());
+        assertEquals("record,holder,field,code,message", lines.get(0));
+        assertTrue(lines.get(1).startsWith("3,Line,quantity,LT_MIN,"), lines.get(1));
+        assertTrue(lines.get(100).startsWith("993,"));
+    }
+
+    @Test
+    void resumes_from_last_checkpoint(@TempDir Path dir) throws Exception {
+        var input = input(dir);
+        var log = dir.resolve("errors.csv");
+        var parsed = new AtomicInteger();
+
+        // crashes while reading the line 750
+        var crashing = BatchValidator.builder(VALIDATOR, RecordDecoder.lines(line -> {
+                    if (parsed.incrementAndGet() == 751) throw new IllegalStateException("crash");
+                    return Line.parse(line);
+                }))
+                .chunkSize(100)
+                .checkpointInterval(Duration.ZERO)
+                .errorLog(log)
+                .build();
+        assertThrows(IllegalStateException.class, () -> crashing.run(input));
+
+        // errors written after the checkpoint are dropped on resume
+        Files.writeString(log, "999,garbage\n", StandardOpenOption.APPEND);
+
+        parsed.set(0);
+        var batch = BatchValidator.builder(VALIDATOR, RecordDecoder.lines(line -> {
+                    parsed.incrementAndGet();
+                    return Line.parse(line);
+                }))
+                .chunkSize(100)
+                .errorLog(log)
+                .build();
+        var result = batch.run(input);
+
+        assertEquals(300, parsed.get());
+        assertEquals(700, result.getResumedRecords());
+        assertEquals(1000, result.getRecords());
+        assertEquals(100, result.getInvalidRecords());
+
+        var fresh = dir.resolve("fresh.csv");
+        BatchValidator.builder(VALIDATOR, RecordDecoder.lines(Line::parse)).errorLog(fresh).build().run(input);
+        assertEquals(Files.readString(fresh), Files.readString(log));
+
+        // a finished batch starts over
+        parsed.set(0);
+        assertFalse(batch.run(input).isResumed());
+        assertEquals(1000, parsed.get());
+        assertEquals(Files.readString(fresh), Files.readString(log));
+    }
+}
@@ -0,0 +1,64 @@
+package ch.mycargogate.fluentValidator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DfaRegexTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "[A-Z0-9]+", "^\\d{3}-\\d{2,4}$", "(ab|a)*c?", "[^-][a-z-]+", "colou?r|grey", "(?:\\w+\\.)*\\w+",
+            "a{2,}b{0,1}", "\\s*x\\S*", ".*\\..*", "[\\u00e0-\\u00ff]+", "(a|b)*a(a|b){3}", "\\x41+?");
+
+    private static final List<String> INPUTS = List.of(
+            "", "ABC123", "abc", "123-45", "123-45678", "ababc", "aaac", "xab-c", "-abc", "color", "colour", "grey",
+            "a.b.c", "a..b", "aab", "aaaaab", "  x!", "x\ny", "éà", "😀", "abaab", "bbbab", "AAA");
+
+    @Test
+    void matches_like_pattern() {
+        for (var regex : PATTERNS) {
+            var dfa = DfaRegex.compile(regex);
+            assertNotNull(dfa, regex);
+            var pattern = Pattern.compile(regex);
+            for (var input : INPUTS)
+                assertEquals(pattern.matcher(input).matches(), dfa.matches(input), regex + " / " + input);
+        }
+    }
+
+    @Test
+    void unsupported_patterns_fall_back_to_jdk() {
+        for (var regex : List.of("(a)\\1", "(?=a)a", "a++", "\\bword", "\\p{L}+", "(?i)abc", "[a-z&&[^b]]"))
+            assertNull(DfaRegex.compile(regex), regex);
+
+        RegexMatcher matcher = RegexEngine.DFA.compile("(a)\\1");
+        assertTrue(matcher.matches("aa"));
+        assertThrows(PatternSyntaxException.class, () -> RegexEngine.DFA.compile("a{"));
+    }
+
+    @Test
+    void linear_time_on_catastrophic_input() {
+        var dfa = DfaRegex.compile("(a+)+b");
+        var input = "a".repeat(10_000) + "!";
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> assertFalse(dfa.matches(input)));
+    }
+
+    @Test
+    void email_rule_with_dfa_engine() {
+        var fluentValidator = FluentValidator.<FluentValidatorCoreTest.User>builder()
+                .fieldRule(FluentValidatorCoreTest.User::getEmail).regexEngine(RegexEngine.DFA).email().done()
+                .build();
+
+        var jdk = Pattern.compile(FieldValidator.EMAIL_REGEX);
+        for (var email : List.of("john.doe@acme.com", "invalidacme.com", "a@-acme.com", "a@@cme.ch",
+                "x".repeat(64) + "@acme.com", "x".repeat(65) + "@acme.com", "a_b@sub.acme.io", "a@acme.c")) {
+            var u = new FluentValidatorCoreTest.User();
+            u.email = email;
+            assertEquals(jdk.matcher(email).matches(), fluentValidator.validate(u).isValid(), email);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ch.mycargogate.fluentValidator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ErrorReportWriterTest {
+
+    private static final List<ValidationError> ERRORS = List.of(
+            new ValidationError("Order.lines[3]", "quantity", ErrorCode.LOWER_THAN_MIN,
+                    "Order.lines[3].quantity- Value 0 is lower than minimum 1"),
+            new ValidationError("Order", "note", "CUSTOM", "Order.note- has \"quotes\", commas\nand lines"),
+            new ValidationError(null, null, "OBJECT_RULE", null));
+
+    @Test
+    void csv_report() throws Exception {
+        var out = new StringWriter();
+        try (var report = ErrorReportWriter.csv(out)) {
+            report.write(ERRORS);
+        }
+
+        assertEquals("""
+                holder,field,code,message
+                Order.lines[3],quantity,LT_MIN,Order.lines[3].quantity- Value 0 is lower than minimum 1
+                Order,note,CUSTOM,"Order.note- has ""quotes"", commas
+                and lines"
+                ,,OBJECT_RULE,
+                """, out.toString());
+    }
+
+    @Test
+    void json_report() throws Exception {
+        var out = new StringWriter();
+        try (var report = ErrorReportWriter.json(out)) {
+            report.write(ERRORS);
+        }
+
+        var json = new ObjectMapper().readTree(out.toString());
+        assertEquals(3, json.size());
+        assertEquals("Order.lines[3]", json.get(0).get("holder").asText());
+        assertEquals(ErrorCode.LOWER_THAN_MIN, json.get(0).get("code").asText());
+        assertEquals("Order.note- has \"quotes\", commas\nand lines", json.get(1).get("message").asText());
+        assertFalse(json.get(2).has("holder"));
+    }
+
+    @Test
+    void result_as_json_object() throws Exception {
+        var out = new StringWriter();
+        try (var generator = new JsonFactory().createGenerator(out)) {
+            ErrorReportWriter.writeJson(ValidationResult.fail(ERRORS), generator);
+        }
+
+        var json = new ObjectMapper().readTree(out.toString());
+        assertFalse(json.get("valid").asBoolean());
+        assertFalse(json.get("incomplete").asBoolean());
+        assertEquals(3, json.get("errors").size());
+    }
+
+    @Test
+    void columnar_errors_written_from_columns() throws Exception {
+        var errors = new ArrayList<>(ERRORS);
+        errors.add(ValidationError.deferred("Order.lines[4]", "quantity", ErrorCode.LOWER_THAN_MIN, 0, 1));
+        errors.add(ValidationError.deferred(null, "name", ErrorCode.MISSING_VALUE));
+
+        var columnar = new ColumnarErrors();
+        columnar.addAll(errors);
+
+        var fromColumns = new StringWriter();
+        try (var report = ErrorReportWriter.csv(fromColumns)) {
+            report.write(columnar);
+        }
+
+        var fromErrors = new StringWriter();
+        try (var report = ErrorReportWriter.csv(fromErrors)) {
+            report.write(errors);
+        }
+        assertEquals(fromErrors.toString(), fromColumns.toString());
+        assertTrue(fromColumns.toString().contains("Order.lines[4].quantity- Value 0"), fromColumns.toString());
+    }
+}
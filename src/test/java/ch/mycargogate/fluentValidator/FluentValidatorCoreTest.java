@@ -2,8 +2,17 @@ package ch.mycargogate.fluentValidator;
 
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -160,6 +169,90 @@ public class FluentValidatorCoreTest {
         assertTrue(result.getErrors().stream().anyMatch(e -> e.getField().equals("score") && e.getCode().equals(ErrorCode.GREATER_THAN_MAX)));
     }
 
+    @Test
+    void exact_numeric_rules() {
+        class Parcel {
+            private long id;
+            private int quantity;
+            private BigDecimal amount;
+            private Double weight;
+
+            public long getId() { return id; }
+            public int getQuantity() { return quantity; }
+            public BigDecimal getAmount() { return amount; }
+            public Double getWeight() { return weight; }
+        }
+
+        var validator = FluentValidator.<Parcel>builder()
+                .fieldRule(Parcel::getId).max(9_007_199_254_740_992L).done()
+                .fieldRule(Parcel::getAmount).min(new BigDecimal("0.01")).done()
+                .intRange("quantity", Parcel::getQuantity, 1, 99)
+                .fieldRule(Parcel::getWeight).min(new BigDecimal("0.5")).max(new BigDecimal("100")).done()
+                .build();
+
+        var p = new Parcel();
+        p.id = 9_007_199_254_740_993L;      // lost when converted to a double
+        p.amount = new BigDecimal("0.009");
+        p.quantity = 100;
+
+        var result = validator.validate(p);
+        assertTrue(result.getErrors().stream().anyMatch(e -> e.getField().equals("id") && e.getCode().equals(ErrorCode.GREATER_THAN_MAX)));
+        assertTrue(result.getErrors().stream().anyMatch(e -> e.getField().equals("amount") && e.getCode().equals(ErrorCode.LOWER_THAN_MIN)));
+        assertTrue(result.getErrors().stream().anyMatch(e -> e.getField().equals("quantity")
+                && e.getMessage().equals("Parcel.quantity- Value 100 cannot be greater than 99")));
+
+        p.id = 1;
+        p.amount = new BigDecimal("0.01");
+        p.quantity = 99;
+        assertTrue(validator.validate(p).isValid());
+
+        // non-finite values are out of the decimal range, NaN is outside of both bounds
+        p.weight = Double.NaN;
+        assertEquals(List.of(ErrorCode.LOWER_THAN_MIN, ErrorCode.GREATER_THAN_MAX), validator.validate(p).getErrors().stream().map(ValidationError::getCode).toList());
+        p.weight = Double.NEGATIVE_INFINITY;
+        assertEquals(List.of(ErrorCode.LOWER_THAN_MIN), validator.validate(p).getErrors().stream().map(ValidationError::getCode).toList());
+        p.weight = 1.5;
+        assertTrue(validator.validate(p).isValid());
+    }
+
+    @Test
+    void decimal_bounds_of_floating_point_values() {
+        class Parcel {
+            private double weight;
+            private BigDecimal amount;
+            private Float ratio;
+
+            public double getWeight() { return weight; }
+            public BigDecimal getAmount() { return amount; }
+            public Float getRatio() { return ratio; }
+        }
+
+        var validator = FluentValidator.<Parcel>builder()
+                .fieldRule(Parcel::getWeight).max(new BigDecimal("0.1")).done()
+                .fieldRule(Parcel::getAmount).min(0.1).done()
+                .fieldRule(Parcel::getRatio).min(new BigDecimal("0.3")).done()
+                .build();
+
+        // a floating point value is its decimal representation, not its binary value
+        var p = new Parcel();
+        p.weight = 0.1;
+        p.amount = new BigDecimal("0.10");
+        p.ratio = 0.3f;
+        assertTrue(validator.validate(p).isValid());
+
+        p.weight = 0.1000001;
+        p.amount = new BigDecimal("0.0999");
+        p.ratio = 0.2999f;
+        assertEquals(List.of(ErrorCode.GREATER_THAN_MAX, ErrorCode.LOWER_THAN_MIN, ErrorCode.LOWER_THAN_MIN),
+                validator.validate(p).getErrors().stream().map(ValidationError::getCode).toList());
+
+        // a lower bound alone rejects NaN
+        p.weight = 0;
+        p.amount = null;
+        p.ratio = Float.NaN;
+        assertEquals(List.of(ErrorCode.LOWER_THAN_MIN), validator.validate(p).getErrors().stream().map(ValidationError::getCode).toList());
+    }
+
     @Test
     void extendsValidator() {
 
@@ -196,6 +289,111 @@ public class FluentValidatorCoreTest {
         assertTrue(result.getErrors().stream().filter(e -> e.getField().equals("b")).anyMatch(e -> e.getCode().equals(ErrorCode.MISSING_VALUE)));
     }
 
+    @Test
+    void extendsValidator_overrides_and_type_check() {
+
+        class A {
+            private String a;
+
+            public String getA() {
+                return a;
+            }
+        }
+        class B extends A {
+            private String b;
+
+            public String getB() {
+                return b;
+            }
+        }
+        class C {
+            public String getC() {
+                return null;
+            }
+        }
+
+        var validatorA = FluentValidator.<A>builder()
+                .when(o -> true)
+                    .fieldRule(A::getA).mandatory().done()
+                .endWhen()
+                .fieldRule(A::getA).minLength(3).done()
+                .build();
+
+        // a field redeclared by the subclass adds its checks, an identical rule is only run once
+        var validatorB = FluentValidator.<B>builder()
+                .extendsValidator(validatorA)
+                .fieldRule(B::getB).when(o -> true).mandatory().done()
+                .fieldRule(B::getA).maxLength(5).done()
+                .fieldRule(B::getA).minLength(3).done()
+                .build();
+
+        var b = new B();
+        var result = validatorB.validate(b);
+        assertEquals(List.of("a", "b"), result.getErrors().stream().map(ValidationError::getField).sorted().toList());
+        assertEquals(ErrorCode.MISSING_VALUE, result.getErrors().get(0).getCode());
+
+        ((A) b).a = "x";
+        b.b = "y";
+        result = validatorB.validate(b);
+        assertEquals(1, result.getErrors().size());
+        assertEquals(ErrorCode.LENGTH_LOWER_THAN, result.getErrors().get(0).getCode());
+
+        ((A) b).a = "xyzxyz";
+        assertEquals(ErrorCode.LENGTH_GREATER_THAN, validatorB.validate(b).getErrors().get(0).getCode());
+        assertTrue(validatorA.validate(b).isValid());
+
+        // the extended validator must validate a super-class
+        assertThrows(IllegalArgumentException.class, () -> FluentValidator.<C>builder()
+                .fieldRule(C::getC).optional().done()
+                .extendsValidator(validatorA)
+                .build());
+        assertThrows(IllegalArgumentException.class, () -> FluentValidator.builder(C.class).extendsValidator(validatorA));
+    }
+
+    @Test
+    void redeclared_rules_replace_the_inherited_ones() {
+
+        class A {
+            String code = "X";
+            LocalDate date = LocalDate.of(2000, 1, 1);
+            String name = "abc";
+
+            public String getCode() {
+                return code;
+            }
+
+            public LocalDate getDate() {
+                return date;
+            }
+
+            public String getName() {
+                return name;
+            }
+        }
+        class B extends A {
+        }
+
+        RuleRunner<String> notAbc = (holder, value) ->
+                "abc".equals(value) ? List.of(new ErrorCodeMessage("ABC", "abc is not allowed")) : null;
+
+        var validatorA = FluentValidator.<A>builder()
+                .fieldRule(A::getCode).inEnum("NEW", "DONE").done()
+                .fieldRule(A::getDate).notBefore(LocalDate.of(2020, 1, 1)).done()
+                .fieldRule(A::getName).charset(CharacterSet.of("xyz")).rule(notAbc).done()
+                .build();
+
+        // equal enum values, date range, character set and rule objects, each failure is reported once
+        var validatorB = FluentValidator.<B>builder()
+                .extendsValidator(validatorA)
+                .fieldRule(B::getCode).inEnum("NEW", "DONE").done()
+                .fieldRule(B::getDate).notBefore(LocalDate.of(2020, 1, 1)).done()
+                .fieldRule(B::getName).charset(CharacterSet.of("xyz")).rule(notAbc).done()
+                .build();
+
+        var codes = validatorB.validate(new B()).getErrors().stream().map(ValidationError::getCode).sorted().toList();
+        assertEquals(List.of("ABC", ErrorCode.DATE_BEFORE, ErrorCode.INVALID_CHARACTER, ErrorCode.MUST_BE_ONE_OF), codes);
+    }
+
     @Test
     void collectionValidators() {
 
@@ -229,6 +427,265 @@ public class FluentValidatorCoreTest {
         result.getErrors().forEach(System.out::println);
         assertFalse(result.isValid());
         assertTrue(result.getErrors().stream().filter(e -> e.getField().equals("a")).anyMatch(e -> e.getCode().equals(ErrorCode.MISSING_VALUE)));
+        // the holder of an element error has the index of the element
+        assertEquals(List.of("B.listOfAs[0]", "B.listOfAs[1]"), result.getErrors().stream().map(ValidationError::getHolder).toList());
+    }
+
+    @Test
+    void revalidate_changed_paths_only() {
+
+        class Line {
+            private int quantity;
+
+            Line(int quantity) {
+                this.quantity = quantity;
+            }
+
+            public int getQuantity() {
+                return quantity;
+            }
+        }
+
+        class Order {
+            private String reference = "R1";
+            private List<Line> lines = new ArrayList<>();
+
+            public String getReference() {
+                return reference;
+            }
+
+            public List<Line> getLines() {
+                return lines;
+            }
+        }
+
+        var lineChecks = new AtomicInteger();
+        var objectChecks = new AtomicInteger();
+
+        var lineValidator = FluentValidator.<Line>builder()
+                .fieldRule(Line::getQuantity).predicate(q -> lineChecks.incrementAndGet() > 0 && q > 0, ErrorCode.LOWER_THAN_MIN, q -> new Object[]{q, 1}).done()
+                .build();
+
+        var orderValidator = FluentValidator.<Order>builder()
+                .fieldRule(Order::getReference).mandatory().done()
+                .collectionRule(Order::getLines).elementValidator(lineValidator).done()
+                .objectRule().dependsOn(Order::getReference)
+                    .predicate(o -> objectChecks.incrementAndGet() > 0 && !"R0".equals(o.reference), ErrorCode.FORBIDDEN).done()
+                .build();
+
+        var order = new Order();
+        for (int i = 0; i < 1000; i++) order.lines.add(new Line(i % 100 == 0 ? 0 : 1));
+
+        var first = orderValidator.revalidate(null, order);
+        assertEquals(10, first.getErrors().size());
+        assertEquals(1000, lineChecks.get());
+
+        // One line changed: one line validated, other errors kept in order
+        lineChecks.set(0);
+        objectChecks.set(0);
+        order.lines.get(100).quantity = 5;
+        order.lines.get(101).quantity = -1;
+        var second = orderValidator.revalidate(first, order, "lines[100].quantity", "lines[101]");
+        assertEquals(2, lineChecks.get());
+        assertEquals(0, objectChecks.get());
+        assertEquals(orderValidator.validate(order).getErrors().toString(), second.getErrors().toString());
+
+        // Dependent object rule
+        lineChecks.set(0);
+        objectChecks.set(0);
+        order.reference = null;
+        var third = orderValidator.revalidate(second, order, "reference");
+        assertEquals(0, lineChecks.get());
+        assertEquals(1, objectChecks.get());
+        assertEquals(orderValidator.validate(order).getErrors().toString(), third.getErrors().toString());
+
+        // Removed line, the whole collection is checked again
+        lineChecks.set(0);
+        order.lines.remove(0);
+        var fourth = orderValidator.revalidate(third, order, "lines");
+        assertEquals(999, lineChecks.get());
+        assertEquals(orderValidator.validate(order).getErrors().toString(), fourth.getErrors().toString());
+    }
+
+    @Test
+    void fail_fast_runs_cheap_rules_first() {
+        var expensiveChecks = new AtomicInteger();
+
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .failFast()
+                .objectRule().dependsOn(User::getName)
+                    .predicate(u -> !u.name.equals(u.email), ErrorCode.FORBIDDEN).done()
+                .fieldRule(User::getEmail).predicate(e -> expensiveChecks.incrementAndGet() > 0 && e.contains("@"), "EMAIL_FORMAT").done()
+                .fieldRule(User::getStatus).regex("[A-Z]+").done()
+                .fieldRule(User::getName).mandatory().maxLength(10).done()
+                .build();
+
+        assertEquals(List.of("name", "status", "object", "email"), fluentValidator.getPlan().order());
+
+        User u = new User();
+        u.email = "invalid";
+        u.status = "new";
+        var result = fluentValidator.validate(u);
+        assertEquals(List.of(ErrorCode.MISSING_VALUE), result.getErrors().stream().map(ValidationError::getCode).toList());
+        assertEquals(0, expensiveChecks.get());
+
+        // The email rule always rejects, it moves before the regex
+        u.name = "John";
+        u.status = "NEW";
+        for (int i = 0; i < RulePlan.REORDER_INTERVAL; i++)
+            assertEquals("EMAIL_FORMAT", fluentValidator.validate(u).getErrors().get(0).getCode());
+        var order = fluentValidator.getPlan().order();
+        assertTrue(order.indexOf("email") < order.indexOf("status"), order.toString());
+        assertTrue(order.indexOf("name") < order.indexOf("object"), order.toString());
+    }
+
+    @Test
+    void fail_fast_child_keeps_parent_rules() {
+        class A {
+            private String a;
+            private String c;
+
+            public String getA() {
+                return a;
+            }
+
+            public String getC() {
+                return c;
+            }
+        }
+        class B extends A {
+            private String b;
+
+            public String getB() {
+                return b;
+            }
+        }
+
+        var validatorA = FluentValidator.<A>builder()
+                .fieldRule(A::getA).minLength(3).regex("[a-z]+").done()
+                .fieldRule(A::getC).mandatory().done()
+                .build();
+
+        var validatorB = FluentValidator.<B>builder()
+                .failFast()
+                .extendsValidator(validatorA)
+                .fieldRule(B::getB).mandatory().done()
+                .build();
+
+        var b = new B();
+        ((A) b).a = "X";
+        assertEquals(1, validatorB.validate(b).getErrors().size());
+
+        // the parent still reports every error
+        assertEquals(List.of(ErrorCode.LENGTH_LOWER_THAN, ErrorCode.REGEX_DONT_MATCH, ErrorCode.MISSING_VALUE),
+                validatorA.validate(b).getErrors().stream().map(ValidationError::getCode).toList());
+        assertEquals(3, validatorA.forGroups("any").validate(b).getErrors().size());
+    }
+
+    @Test
+    void conditional_rules() {
+        var conditionChecks = new AtomicInteger();
+        Predicate<User> isAdmin = u -> conditionChecks.incrementAndGet() > 0 && u.role == Role.ADMIN;
+
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .fieldRule(User::getName).mandatory().done()
+                .when(isAdmin)
+                    .fieldRule(User::getEmail).mandatory().email().done()
+                    .fieldRule(User::getAge).mandatory().done()
+                    .unless(u -> u.status == null)
+                        .fieldRule(User::getStatus).inEnum("ACTIVE").done()
+                    .endWhen()
+                .endWhen()
+                .fieldRule(User::getScore).mandatory().unless(isAdmin).done()
+                .build();
+
+        User u = new User();
+        u.name = "John";
+        u.role = Role.USER;
+        var result = fluentValidator.validate(u);
+        assertEquals(List.of("score"), result.getErrors().stream().map(ValidationError::getField).toList());
+        assertEquals(1, conditionChecks.get());
+
+        u.role = Role.ADMIN;
+        u.status = "NEW";
+        result = fluentValidator.validate(u);
+        assertEquals(List.of("email", "age", "status"), result.getErrors().stream().map(ValidationError::getField).toList());
+        assertEquals(2, conditionChecks.get());
+
+        // Rules skipped before a change of the condition run on revalidation
+        u.role = Role.USER;
+        var before = fluentValidator.revalidate(null, u);
+        u.role = Role.ADMIN;
+        var after = fluentValidator.revalidate(before, u, "role");
+        assertEquals(result.getErrors().toString(), after.getErrors().toString());
+
+        assertThrows(IllegalStateException.class, () -> FluentValidator.<User>builder().when(isAdmin).build());
+    }
+
+    @Test
+    void columnar_errors() {
+        var validator = FluentValidator.<User>builder()
+                .fieldRule(User::getName).mandatory().done()
+                .fieldRule(User::getAge).min(0).max(120).done()
+                .build();
+
+        var columnar = new ColumnarErrors();
+        var expected = new ArrayList<ValidationError>();
+        for (int i = 0; i < 100; i++) {
+            var u = new User();
+            u.name = i % 2 == 0 ? null : "n" + i;
+            u.age = i % 3 == 0 ? -i : 20;
+            var holder = "Batch.users[" + i + "]";
+            assertEquals(validator.validateInto(holder, u, columnar), validator.validateInto(holder, u, expected));
+        }
+
+        assertEquals(expected.size(), columnar.size());
+        for (int i = 0; i < expected.size(); i++)
+            assertEquals(expected.get(i).toString(), columnar.get(i).toString());
+
+        assertEquals(Map.of(ErrorCode.MISSING_VALUE, 50, ErrorCode.LOWER_THAN_MIN, 33), columnar.countByCode());
+        assertEquals(Map.of("name", 50, "age", 33), columnar.countByField());
+        assertEquals("name", columnar.getField(0));
+        assertEquals(ErrorCode.LOWER_THAN_MIN, columnar.getCode(2));
+
+        // collapsed errors keep their count and ranges
+        class Order {
+            public Collection<Integer> getQuantities() { return List.of(0, 0, 5, 0); }
+        }
+        var orderValidator = FluentValidator.<Order>builder()
+                .collectionRule(Order::getQuantities).collapseErrors().elementPredicate(q -> q > 0, ErrorCode.MISSING_VALUE).done()
+                .build();
+        columnar.clear();
+        orderValidator.validateInto(null, new Order(), columnar);
+        var collapsed = assertInstanceOf(CollapsedError.class, columnar.get(0));
+        assertEquals(3, collapsed.getCount());
+        assertEquals(3, columnar.getCount(0));
+    }
+
+    @Test
+    void validation_groups() {
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .fieldRule(User::getName).mandatory().done()
+                .fieldRule(User::getEmail).mandatory().groups("submit", "dispatch").done()
+                .fieldRule(User::getAge).mandatory().groups("dispatch").done()
+                .objectRule().groups("dispatch").predicate(u -> u.status != null, ErrorCode.MISSING_VALUE).done()
+                .build();
+
+        User u = new User();
+        assertEquals(List.of("name"), fields(fluentValidator.validate(u, "draft")));
+        assertEquals(List.of("name", "email"), fields(fluentValidator.validate(u, "submit")));
+        assertEquals(4, fluentValidator.validate(u, "dispatch").getErrors().size());
+        assertEquals(4, fluentValidator.validate(u).getErrors().size());
+
+        // One validator per combination of groups
+        assertSame(fluentValidator.forGroups("submit", "dispatch"), fluentValidator.forGroups("dispatch", "submit"));
+        assertSame(fluentValidator.forGroups("submit"), fluentValidator.forGroups("submit", "submit"));
+        assertEquals(List.of("name", "email"), fields(fluentValidator.validate(u, "submit", "submit")));
+        assertThrows(NullPointerException.class, () -> fluentValidator.forGroups("submit", null));
+    }
+
+    private static List<String> fields(ValidationResult result) {
+        return result.getErrors().stream().map(ValidationError::getField).toList();
     }
 
     @Test
@@ -294,6 +751,28 @@ public class FluentValidatorCoreTest {
         assertTrue(r4.getErrors().stream().anyMatch(e -> e.getCode().equals(ErrorCode.REGEX_DONT_MATCH)));
     }
 
+    @Test
+    void code_point_byte_length_and_charset_rules() {
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .fieldRule(User::getName).maxCodePoints(4).maxUtf8Bytes(6).charset(CharacterSet.LATIN_1).done()
+                .fieldRule(User::getStatus).charset(CharacterSet.EDIFACT_A).done()
+                .build();
+
+        User u1 = new User();
+        u1.name = "Zoë";           // 3 code points, 4 bytes
+        u1.status = "NEW +1";
+        assertTrue(fluentValidator.validate(u1).isValid());
+
+        User u2 = new User();
+        u2.name = "\uD83D\uDE00\uD83D\uDE00";  // 2 code points, 4 chars, 8 bytes
+        u2.status = "new";
+        var r2 = fluentValidator.validate(u2);
+        assertTrue(r2.getErrors().stream().noneMatch(e -> e.getCode().equals(ErrorCode.LENGTH_GREATER_THAN)));
+        assertTrue(r2.getErrors().stream().anyMatch(e -> e.getField().equals("name") && e.getCode().equals(ErrorCode.BYTE_LENGTH_GREATER_THAN)));
+        assertTrue(r2.getErrors().stream().anyMatch(e -> e.getField().equals("name") && e.getCode().equals(ErrorCode.INVALID_CHARACTER)));
+        assertTrue(r2.getErrors().stream().anyMatch(e -> e.getMessage().equals("User.status- Invalid character 'n' at position 0")));
+    }
+
     @Test
     void enum_rules_for_string_and_enum_fields() {
         FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
@@ -311,6 +790,26 @@ public class FluentValidatorCoreTest {
         assertTrue(result.getErrors().stream().anyMatch(e -> e.getField().equals("role") && e.getCode().equals(ErrorCode.MUST_BE_ONE_OF)));
     }
 
+    @Test
+    void large_enum_rules() {
+        var codes = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++)
+            codes.add(String.format("C%04d", i));
+
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .fieldRule(User::getStatus).inEnumIgnoreCase(codes).done()
+                .build();
+
+        User u = new User();
+        u.status = "c4999";
+        assertTrue(fluentValidator.validate(u).isValid());
+
+        u.status = "X0001";
+        var result = fluentValidator.validate(u);
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().get(0).getMessage().endsWith("C0009, ... (4990 more)]"));
+    }
+
     @Test
     void collection_size_rules() {
         FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
@@ -330,6 +829,362 @@ public class FluentValidatorCoreTest {
         assertTrue(r2.getErrors().stream().anyMatch(e -> e.getCode().equals(ErrorCode.SIZE_GT)));
     }
 
+    @Test
+    void collection_element_rules() {
+        class Order {
+            private final List<Integer> quantities;
+
+            Order(List<Integer> quantities) {
+                this.quantities = quantities;
+            }
+
+            public Collection<Integer> getQuantities() {
+                return quantities;
+            }
+        }
+
+        var validator = FluentValidator.<Order>builder()
+                .collectionRule(Order::getQuantities)
+                    .maxSize(3)
+                    .elementPredicate(q -> q % 2 == 0, "MUST_BE_EVEN")
+                    .elementCheck((context, q) -> {
+                        if (q > 100) context.report(ErrorCode.GREATER_THAN_MAX, q, 100);
+                    })
+                    .done()
+                .build();
+
+        var errors = validator.validate(new Order(List.of(2, 3, 102, 101))).getErrors();
+        assertEquals(List.of(ErrorCode.SIZE_GT, "MUST_BE_EVEN", ErrorCode.GREATER_THAN_MAX, "MUST_BE_EVEN", ErrorCode.GREATER_THAN_MAX),
+                errors.stream().map(ValidationError::getCode).toList());
+        assertEquals("quantities[1]", errors.get(1).getField());
+        assertEquals("Order.quantities[1]- is not an even number", errors.get(1).getMessage());
+
+        // same errors for a collection without random access
+        var linked = validator.validate(new Order(new LinkedList<>(List.of(2, 3, 102, 101)))).getErrors();
+        assertEquals(errors.toString(), linked.toString());
+
+        assertTrue(validator.validate(new Order(List.of(2, 4))).isValid());
+    }
+
+    @Test
+    void collapsed_element_errors() {
+        class Order {
+            private final List<Integer> quantities;
+
+            Order(List<Integer> quantities) {
+                this.quantities = quantities;
+            }
+
+            public Collection<Integer> getQuantities() {
+                return quantities;
+            }
+        }
+
+        var validator = FluentValidator.<Order>builder()
+                .collectionRule(Order::getQuantities)
+                    .collapseErrors()
+                    .elementPredicate(q -> q % 2 == 0, "MUST_BE_EVEN")
+                    .elementCheck((context, q) -> {
+                        if (q > 100) context.report(ErrorCode.GREATER_THAN_MAX, q, 100);
+                    })
+                    .done()
+                .build();
+
+        var quantities = new ArrayList<Integer>();
+        for (int i = 0; i < 50_000; i++)
+            quantities.add(1);
+        quantities.set(3, 102);
+
+        var errors = validator.validate(new Order(quantities)).getErrors();
+        assertEquals(2, errors.size());
+
+        var collapsed = assertInstanceOf(CollapsedError.class, errors.get(0));
+        assertEquals("MUST_BE_EVEN", collapsed.getCode());
+        assertEquals(49_999, collapsed.getCount());
+        assertEquals("Order.quantities- is not an even number [49999 errors on elements 0-2, 4-49999]", collapsed.getMessage());
+        assertEquals(49_999, collapsed.getElementIndexes().length);
+        assertEquals(4, collapsed.getElementIndexes()[3]);
+
+        var expanded = collapsed.expand();
+        assertEquals(49_999, expanded.size());
+        assertTrue(expanded.stream().allMatch(e -> e.getCode().equals("MUST_BE_EVEN")));
+        assertEquals("quantities[4]", expanded.get(3).getField());
+        assertEquals("Order.quantities[4]- is not an even number", expanded.get(3).getMessage());
+
+        // the ranges are copied
+        collapsed.getRanges()[0] = 7;
+        assertEquals(0, collapsed.getRanges()[0]);
+
+        // a single error is not collapsed
+        assertFalse(errors.get(1) instanceof CollapsedError);
+        assertEquals(ErrorCode.GREATER_THAN_MAX, errors.get(1).getCode());
+    }
+
+    @Test
+    void collapsed_errors_expand_to_the_element_errors() {
+        record Order(List<Integer> quantities) {
+            public List<Integer> getQuantities() {
+                return quantities;
+            }
+        }
+
+        Function<Boolean, FluentValidator<Order>> validator = collapse -> {
+            var rule = FluentValidator.<Order>builder().collectionRule(Order::getQuantities);
+            if (collapse) rule.collapseErrors();
+            return rule
+                    .elementCheck((context, q) -> {
+                        // the value differs per element, the bound is shared except for the second error of 180
+                        if (q > 100) context.report(ErrorCode.GREATER_THAN_MAX, q, 100);
+                        if (q == 180) context.report(ErrorCode.GREATER_THAN_MAX, q, 175);
+                        if (q == 1 || q == 2) context.reportMessage("SMALL", "small " + q);
+                    })
+                    .done()
+                    .build();
+        };
+
+        var order = new Order(List.of(150, 150, 1, 170, 180, 2, 180));
+        var plain = validator.apply(false).validate(order).getErrors();
+        var collapsed = validator.apply(true).validate(order).getErrors();
+
+        assertEquals(2, collapsed.size());
+        assertEquals(7, ((CollapsedError) collapsed.get(0)).getCount());
+        assertArrayEquals(new int[]{0, 2, 3, 5, 6, 7}, ((CollapsedError) collapsed.get(0)).getRanges());
+
+        var expanded = new ArrayList<ValidationError>();
+        for (var error : collapsed)
+            expanded.addAll(((CollapsedError) error).expand());
+        Function<ValidationError, String> text = e -> e.getHolder() + "|" + e.getField() + "|" + e.getMessage();
+        assertEquals(plain.stream().map(text).sorted().toList(), expanded.stream().map(text).sorted().toList());
+    }
+
+    @Test
+    void unique_keys_in_collection() {
+        record Pack(String sscc, int line) {
+            public String getSscc() { return sscc; }
+            public int getLine() { return line; }
+        }
+        class Manifest {
+            private final List<Pack> packs;
+
+            Manifest(List<Pack> packs) {
+                this.packs = packs;
+            }
+
+            public Collection<Pack> getPacks() {
+                return packs;
+            }
+        }
+
+        var validator = FluentValidator.<Manifest>builder()
+                .collectionRule(Manifest::getPacks)
+                    .uniqueBy(Pack::getSscc)
+                    .uniqueByInt("line", Pack::getLine)
+                    .done()
+                .build();
+
+        var packs = new ArrayList<Pack>();
+        for (int i = 0; i < 50_000; i++)
+            packs.add(new Pack("S" + i, i + 1));
+        assertTrue(validator.validate(new Manifest(packs)).isValid());
+
+        packs.set(40_000, new Pack("S7", 7));
+        packs.set(45_000, new Pack(null, 45_000));
+        var errors = validator.validate(new Manifest(packs)).getErrors();
+        assertEquals(3, errors.size());
+        assertTrue(errors.stream().allMatch(e -> e.getCode().equals(ErrorCode.DUPLICATE)));
+        assertEquals("Manifest.packs- Element 40000 has the same sscc 'S7' as element 7", errors.get(0).getMessage());
+        assertEquals("Manifest.packs- Element 40000 has the same line '7' as element 6", errors.get(1).getMessage());
+        assertEquals("Manifest.packs- Element 45000 has the same line '45000' as element 44999", errors.get(2).getMessage());
+    }
+
+    @Test
+    void aggregate_collection_rules() {
+        record Pack(Double weight, boolean dangerous) {
+            public Double getWeight() { return weight; }
+        }
+        class Shipment {
+            private final List<Pack> packs;
+            private Double grossWeight;
+
+            Shipment(List<Pack> packs, Double grossWeight) {
+                this.packs = packs;
+                this.grossWeight = grossWeight;
+            }
+
+            public Collection<Pack> getPacks() { return packs; }
+            public Double getGrossWeight() { return grossWeight; }
+        }
+
+        var validator = FluentValidator.<Shipment>builder()
+                .collectionRule(Shipment::getPacks)
+                    .sumOf(Pack::getWeight).atMost(Shipment::getGrossWeight)
+                    .minOf(Pack::getWeight).atLeast(0.1)
+                    .countWhere("dangerous", Pack::dangerous).atMost(1)
+                    .done()
+                .build();
+
+        var packs = List.of(new Pack(0.1, false), new Pack(0.2, true), new Pack(null, false));
+        assertTrue(validator.validate(new Shipment(packs, 0.3)).isValid());
+
+        packs = List.of(new Pack(0.05, true), new Pack(10.0, true));
+        var errors = validator.validate(new Shipment(packs, 10.0)).getErrors();
+        assertEquals(List.of(ErrorCode.AGGREGATE_GT, ErrorCode.AGGREGATE_LT, ErrorCode.AGGREGATE_GT),
+                errors.stream().map(ValidationError::getCode).toList());
+        assertEquals("Shipment.packs- Sum of weight is 10.05, it cannot be greater than 10", errors.get(0).getMessage());
+        assertEquals("Shipment.packs- Count of dangerous is 2, it cannot be greater than 1", errors.get(2).getMessage());
+
+        // not compared with a missing field
+        assertEquals(2, validator.validate(new Shipment(packs, null)).getErrors().size());
+
+        // integral sums are exact
+        record Line(Long amount) {
+            public Long getAmount() { return amount; }
+        }
+        class Invoice {
+            public Collection<Line> getLines() { return List.of(new Line(999_999_999L), new Line(2L)); }
+        }
+        var invoiceValidator = FluentValidator.<Invoice>builder()
+                .collectionRule(Invoice::getLines).sumOf(Line::getAmount).atMost(1_000_000_000L).done()
+                .build();
+        errors = invoiceValidator.validate(new Invoice()).getErrors();
+        assertEquals("Invoice.lines- Sum of amount is 1000000001, it cannot be greater than 1000000000", errors.get(0).getMessage());
+
+        // primitive decimal sums are exact too, a sum of both infinities is within no limit
+        record Parcel(double weight) {
+        }
+        class Truck {
+            private final List<Parcel> parcels;
+
+            Truck(double... weights) {
+                parcels = Arrays.stream(weights).mapToObj(Parcel::new).toList();
+            }
+
+            public Collection<Parcel> getParcels() { return parcels; }
+        }
+        var truckValidator = FluentValidator.<Truck>builder()
+                .collectionRule(Truck::getParcels).sumOf("weight", Parcel::weight).atLeast(0.3).done()
+                .collectionRule(Truck::getParcels).sumOf("weight", Parcel::weight).atMost(0.3).done()
+                .build();
+        assertTrue(truckValidator.validate(new Truck(0.1, 0.2)).isValid());
+        assertTrue(truckValidator.validate(new Truck(0.1, 1e-20, 0.2, -1e-20)).isValid());
+        assertEquals(List.of("Truck.parcels- Sum of weight is 0.31, it cannot be greater than 0.3"),
+                truckValidator.validate(new Truck(0.1, 0.2, 0.01)).getErrors().stream().map(ValidationError::getMessage).toList());
+        assertEquals(List.of(ErrorCode.AGGREGATE_GT),
+                truckValidator.validate(new Truck(0.1, Double.POSITIVE_INFINITY)).getErrors().stream().map(ValidationError::getCode).toList());
+        assertEquals(List.of(ErrorCode.AGGREGATE_LT, ErrorCode.AGGREGATE_GT),
+                truckValidator.validate(new Truck(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)).getErrors().stream().map(ValidationError::getCode).toList());
+    }
+
+    @Test
+    void validation_budget() {
+        record Line(int quantity) {
+            public int getQuantity() { return quantity; }
+        }
+        class Order {
+            private final List<Line> lines = new ArrayList<>();
+            private String reference;
+
+            public String getReference() { return reference; }
+            public Collection<Line> getLines() { return lines; }
+        }
+
+        var lineValidator = FluentValidator.<Line>builder()
+                .fieldRule(Line::getQuantity).min(1).done()
+                .build();
+        var validator = FluentValidator.<Order>builder()
+                .fieldRule(Order::getReference).mandatory().done()
+                .collectionRule(Order::getLines).elementValidator(lineValidator).done()
+                .build();
+
+        var order = new Order();
+        for (int i = 0; i < 1_000; i++)
+            order.lines.add(new Line(0));
+
+        assertEquals(1_001, validator.validate(order).getErrors().size());
+
+        var budget = ValidationBudget.ofRules(100);
+        var result = validator.validate(order, budget);
+        assertTrue(result.isIncomplete());
+        assertFalse(result.isValid());
+        assertTrue(budget.isExhausted());
+        assertTrue(result.getErrors().size() > 1 && result.getErrors().size() < 100);
+        assertEquals(ErrorCode.MISSING_VALUE, result.getErrors().get(0).getCode());
+
+        var expired = validator.validate(order, ValidationBudget.within(Duration.ofMillis(-1)));
+        assertTrue(expired.isIncomplete());
+        assertTrue(expired.getErrors().isEmpty());
+
+        // revalidation stops on the budget too, and the next one validates the whole object
+        var partial = validator.revalidate(null, order, ValidationBudget.ofRules(100), List.of());
+        assertTrue(partial.isIncomplete());
+        assertTrue(partial.getErrors().size() > 1 && partial.getErrors().size() < 100);
+        assertEquals(1_001, validator.revalidate(partial, order, "reference").getErrors().size());
+
+        // a fail-fast validator revalidates with its plan, up to the first error
+        var failFast = FluentValidator.<Order>builder().failFast()
+                .fieldRule(Order::getReference).mandatory().done()
+                .collectionRule(Order::getLines).elementValidator(lineValidator).done()
+                .build();
+        var first = failFast.revalidate(null, order);
+        assertEquals(1, first.getErrors().size());
+        assertEquals(1, failFast.revalidate(first, order, "lines[3]").getErrors().size());
+
+        // one evaluation per rule, the checks of a rule are not counted again
+        var checked = FluentValidator.<Order>builder()
+                .fieldRule(Order::getReference).check((context, reference) -> {}).done()
+                .fieldRule(Order::getReference).check((context, reference) -> {}).done()
+                .build();
+        order.reference = "R1";
+        var twoRules = ValidationBudget.ofRules(2);
+        assertFalse(checked.validate(order, twoRules).isIncomplete());
+        assertEquals(2, twoRules.getEvaluations());
+
+        order.lines.clear();
+        var complete = validator.validate(order, ValidationBudget.within(Duration.ofSeconds(10)));
+        assertTrue(complete.isValid());
+        assertFalse(complete.isIncomplete());
+    }
+
+    @Test
+    void batched_lookups() {
+        record Line(String product, int quantity) {
+            public String getProduct() { return product; }
+        }
+        class Order {
+            private final List<Line> lines = new ArrayList<>();
+
+            public Collection<Line> getLines() { return lines; }
+        }
+
+        var calls = new ArrayList<Set<String>>();
+        var stock = Map.of("P1", 10, "P2", 0);
+        Function<Set<String>, Map<String, Integer>> loader = keys -> {
+            calls.add(Set.copyOf(keys));
+            var found = new HashMap<String, Integer>();
+            keys.stream().filter(stock::containsKey).forEach(k -> found.put(k, stock.get(k)));
+            return found;
+        };
+
+        var validator = FluentValidator.<Order>builder()
+                .collectionRule(Order::getLines)
+                    .lookup(Line::getProduct, loader)
+                    .lookup(Line::getProduct, loader, (line, available) -> available == null || available >= line.quantity(), "FORBIDDEN")
+                    .done()
+                .build();
+
+        var order = new Order();
+        for (int i = 0; i < 10_000; i++)
+            order.lines.add(new Line(i % 2 == 0 ? "P1" : "P2", 1));
+        order.lines.add(new Line("P3", 1));
+        order.lines.add(new Line(null, 1));
+
+        var errors = validator.validate(order).getErrors();
+        assertEquals(List.of(Set.of("P1", "P2", "P3"), Set.of("P1", "P2", "P3")), calls);
+        assertEquals(1, errors.stream().filter(e -> e.getCode().equals(ErrorCode.NOT_FOUND)).count());
+        assertEquals("Order.lines- Element 10000: product 'P3' not found", errors.get(0).getMessage());
+        assertEquals(5_000, errors.stream().filter(e -> e.getCode().equals("FORBIDDEN")).count());
+    }
+
     @Test
     void date_range_rules() {
         FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
@@ -350,6 +1205,67 @@ public class FluentValidatorCoreTest {
         assertTrue(r2.getErrors().stream().anyMatch(e -> e.getCode().equals(ErrorCode.DATE_AFTER)));
     }
 
+    @Test
+    void relative_date_rules() {
+        var clock = Clock.fixed(Instant.parse("2024-06-30T12:00:00Z"), ZoneOffset.UTC);
+
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .fieldRule(User::getDate).notOlderThanDays(90).clock(clock).notAfter(LocalDate.of(2024, 6, 30)).done()
+                .build();
+
+        User u = new User();
+        u.date = LocalDate.of(2024, 4, 1);
+        assertTrue(fluentValidator.validate(u).isValid());
+
+        u.date = LocalDate.of(2024, 3, 31);
+        var r1 = fluentValidator.validate(u);
+        assertEquals(List.of(ErrorCode.DATE_BEFORE), r1.getErrors().stream().map(ValidationError::getCode).toList());
+
+        u.date = LocalDate.of(2024, 7, 1);
+        var r2 = fluentValidator.validate(u);
+        assertEquals(List.of(ErrorCode.DATE_AFTER), r2.getErrors().stream().map(ValidationError::getCode).toList());
+    }
+
+    @Test
+    void relative_date_rules_read_the_clock_once_per_validation() {
+        class Shipment {
+            public LocalDate getShipped() {
+                return LocalDate.of(2024, 6, 1);
+            }
+
+            public LocalDate getDelivered() {
+                return LocalDate.of(2024, 6, 2);
+            }
+        }
+
+        var readings = new AtomicInteger();
+        var clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                readings.incrementAndGet();
+                return Instant.parse("2024-06-30T12:00:00Z");
+            }
+        };
+
+        var validator = FluentValidator.<Shipment>builder()
+                .fieldRule(Shipment::getShipped).notOlderThanDays(90).clock(clock).done()
+                .fieldRule(Shipment::getDelivered).notOlderThanDays(90).clock(clock).done()
+                .build();
+
+        assertTrue(validator.validate(new Shipment()).isValid());
+        assertEquals(1, readings.get());
+    }
+
     @Test
     void custom_predicate_rule() {
         FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
@@ -363,6 +1279,34 @@ public class FluentValidatorCoreTest {
         assertTrue(result.getErrors().stream().anyMatch(e -> e.getField().equals("email") && e.getCode().equals(ErrorCode.REGEX_DONT_MATCH) ));
     }
 
+    @Test
+    void context_and_runner_rules() {
+        var contexts = new HashSet<RuleContext>();
+        FluentValidator<User> fluentValidator = FluentValidator.<User>builder()
+                .fieldRule(User::getAge)
+                    .check((context, age) -> {
+                        contexts.add(context);
+                        if (age > 120) context.report(ErrorCode.GREATER_THAN_MAX, age, 120);
+                    })
+                    .rule((holder, age) -> age % 2 == 0 ? null
+                            : List.of(new ErrorCodeMessage(ErrorCode.FORBIDDEN, holder + ".age- odd")))
+                    .done()
+                .build();
+
+        User u = new User();
+        u.age = 121;
+        var errors = fluentValidator.validate(u).getErrors();
+        assertEquals(2, errors.size());
+        assertEquals(ErrorCode.GREATER_THAN_MAX, errors.get(0).getCode());
+        assertEquals("User.age- Value 121 cannot be greater than 120", errors.get(0).getMessage());
+        assertEquals("User.age- odd", errors.get(1).getMessage());
+
+        u.age = 20;
+        assertTrue(fluentValidator.validate(u).isValid());
+        // the context is reused by the validations of the thread
+        assertEquals(1, contexts.size());
+    }
+
     @Test
     void object_rule() {
 
@@ -0,0 +1,54 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.Getter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativeImageMetadataTest {
+
+    @Getter
+    public static class Item {
+        private String sku;
+    }
+
+    @Getter
+    public static class Order {
+        private String identifier;
+        private boolean urgent;
+        private List<Item> items;
+    }
+
+    @Test
+    void records_getters_of_nested_validators(@TempDir Path dir) throws Exception {
+        var itemValidator = FluentValidator.<Item>builder()
+                .fieldRule(Item::getSku).mandatory().inEnumFromResource("skus.txt", false).done()
+                .build();
+
+        var orderValidator = FluentValidator.<Order>builder()
+                .fieldRule(Order::getIdentifier).mandatory().done()
+                .fieldRule(Order::isUrgent).mandatory().done()
+                .collectionRule(Order::getItems).elementValidator(itemValidator).done()
+                .build();
+
+        var metadata = new NativeImageMetadata().record(orderValidator).recordResource("validator.json");
+
+        assertEquals(Set.of("getIdentifier", "getItems", "isUrgent"), metadata.getGetters().get(Order.class.getName()));
+        assertEquals(Set.of("getSku"), metadata.getGetters().get(Item.class.getName()));
+        assertEquals(Set.of(NativeImageMetadataTest.class.getName()), metadata.getLambdaCapturingClasses());
+        assertEquals(Set.of("skus.txt", "validator.json"), metadata.getResources());
+        assertEquals(Set.of("fluent-validator-messages.properties"),
+                NativeImageMetadata.fromProviders(getClass().getClassLoader()).getResources());
+
+        metadata.write(dir);
+        assertTrue(Files.readString(dir.resolve("reflect-config.json")).contains("isUrgent"));
+        assertTrue(Files.readString(dir.resolve("serialization-config.json")).contains(NativeImageMetadataTest.class.getName()));
+        assertTrue(Files.readString(dir.resolve("resource-config.json")).contains("validator.json"));
+    }
+}
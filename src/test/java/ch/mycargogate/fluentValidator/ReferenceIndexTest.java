@@ -0,0 +1,57 @@
+package ch.mycargogate.fluentValidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReferenceIndexTest {
+
+    @Test
+    void lookups_in_mapped_index(@TempDir Path dir) throws Exception {
+        var values = new ArrayList<String>();
+        for (int i = 0; i < 100_000; i += 2)
+            values.add(String.format("%08d", i));
+        values.add("Zürich");
+        values.add("00000002");
+
+        var file = dir.resolve("tariffs.idx");
+        ReferenceIndex.write(values, file);
+
+        var index = ReferenceIndex.openWithBloomFilter(file);
+        assertSame(index, ReferenceIndex.open(file));
+        assertEquals(50_001, index.size());
+
+        for (int i = 0; i < 100_000; i++)
+            assertEquals(i % 2 == 0, index.contains(String.format("%08d", i)));
+        assertTrue(index.contains("Zürich"));
+        assertFalse(index.contains("Zurich"));
+        assertFalse(index.contains(""));
+    }
+
+    @Test
+    void indexer_and_lookup_rule(@TempDir Path dir) throws Exception {
+        record Line(String tariff) {
+            public String getTariff() { return tariff; }
+        }
+
+        var source = dir.resolve("tariffs.txt");
+        Files.write(source, List.of("8471.30", " 8517.12 ", "", "0101.21"));
+        var file = dir.resolve("tariffs-rule.idx");
+        ReferenceIndex.main(new String[]{source.toString(), file.toString()});
+
+        var validator = FluentValidator.<Line>builder()
+                .fieldRule(Line::getTariff).inReference(ReferenceIndex.open(file)).done()
+                .build();
+
+        assertTrue(validator.validate(new Line("8517.12")).isValid());
+        var errors = validator.validate(new Line("9999.99")).getErrors();
+        assertEquals(ErrorCode.NOT_IN_REFERENCE, errors.get(0).getCode());
+        assertEquals("Line.tariff- Value '9999.99' is not in the reference tariffs-rule.idx", errors.get(0).getMessage());
+    }
+}
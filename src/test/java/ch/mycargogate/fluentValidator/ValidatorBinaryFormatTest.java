@@ -0,0 +1,95 @@
+package ch.mycargogate.fluentValidator;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidatorBinaryFormatTest {
+
+    @Getter
+    @AllArgsConstructor
+    public static class Line {
+        private String sku;
+        private Integer quantity;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Order {
+        private String identifier;
+        private String currency;
+        private LocalDate shipDate;
+        private List<Line> lines;
+    }
+
+    private static FluentValidator<Order> orderValidator() {
+        var lineValidator = FluentValidator.<Line>builder()
+                .fieldRule(Line::getSku).mandatory().regex("[A-Z0-9]+", RegexEngine.DFA).done()
+                .fieldRule(Line::getQuantity).min(1).max(999).done()
+                .build();
+
+        return FluentValidator.<Order>builder()
+                .fieldRule(Order::getIdentifier).mandatory().notBlank().maxLength(10).done()
+                .fieldRule(Order::getCurrency).inEnum("CHF", "EUR").groups("submit").done()
+                .fieldRule(Order::getShipDate).notBefore(LocalDate.of(2020, 1, 1)).done()
+                .collectionRule(Order::getLines).mandatory().minSize(1).collapseErrors().elementValidator(lineValidator).done()
+                .build();
+    }
+
+    @Test
+    void write_and_read_back(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("order.fvb");
+        ValidatorBinaryFormat.write(orderValidator(), file);
+
+        FluentValidator<Order> loaded = ValidatorBinaryFormat.read(file);
+
+        var order = new Order("ORDER-0000001", "USD", LocalDate.of(2019, 5, 1),
+                List.of(new Line("ab", 0), new Line("AB1", 5)));
+
+        var expected = orderValidator().validate(order).getErrors().stream().map(ValidationError::getFullMessage).toList();
+        var actual = loaded.validate(order).getErrors().stream().map(ValidationError::getFullMessage).toList();
+
+        assertFalse(actual.isEmpty());
+        assertEquals(expected, actual);
+
+        assertTrue(loaded.getCollectionRules().get(0).isCollapseErrors());
+        var sku = loaded.getCollectionRules().get(0).getElementValidator().getFieldValidators().get(0);
+        assertEquals(RegexEngine.DFA, sku.getRegexEngine());
+        assertInstanceOf(DfaRegex.class, sku.getMatcher());
+
+        var draft = loaded.validate(order, "draft").getErrors().stream().map(ValidationError::getFullMessage).toList();
+        assertEquals(expected.size() - 1, draft.size());
+    }
+
+    @Test
+    void older_versions_are_rejected(@TempDir Path dir) throws Exception {
+        var file = dir.resolve("order.fvb");
+        ValidatorBinaryFormat.write(orderValidator(), file);
+
+        // version after the magic number
+        var bytes = Files.readAllBytes(file);
+        bytes[4] = 0;
+        bytes[5] = 5;
+        Files.write(file, bytes);
+
+        var e = assertThrows(IllegalArgumentException.class, () -> ValidatorBinaryFormat.read(file));
+        assertEquals("Unsupported compiled validator version: 5", e.getMessage());
+    }
+
+    @Test
+    void custom_rules_cannot_be_exported(@TempDir Path dir) {
+        var validator = FluentValidator.<Order>builder()
+                .fieldRule(Order::getIdentifier).predicate(s -> s.startsWith("O"), "MUST_BE_ADULT").done()
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> ValidatorBinaryFormat.write(validator, dir.resolve("custom.fvb")));
+    }
+}
@@ -0,0 +1,97 @@
+package ch.mycargogate.fluentValidator.processor;
+
+import ch.mycargogate.fluentValidator.ErrorCode;
+import ch.mycargogate.fluentValidator.ValidationError;
+import ch.mycargogate.fluentValidator.ValidationResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidatorProcessorTest {
+
+    private static final String SHIPMENT = """
+            package demo;
+
+            import ch.mycargogate.fluentValidator.annotation.*;
+            import java.math.BigDecimal;
+
+            @GenerateValidator
+            public class Shipment {
+                @Mandatory @NotBlank @Length(max = 8) @Regex("[A-Z0-9]+")
+                private String reference;
+
+                @OneOf({"AIR", "SEA"})
+                private String mode;
+
+                @Range(min = "1", max = "999")
+                private int packages;
+
+                @Range(max = "1000.50")
+                private BigDecimal weight;
+
+                public Shipment(String reference, String mode, int packages, BigDecimal weight) {
+                    this.reference = reference;
+                    this.mode = mode;
+                    this.packages = packages;
+                    this.weight = weight;
+                }
+
+                public String getReference() { return reference; }
+                public String getMode() { return mode; }
+                public int getPackages() { return packages; }
+                public BigDecimal getWeight() { return weight; }
+            }
+            """;
+
+    @Test
+    void generates_reflection_free_validator(@TempDir Path dir) throws Exception {
+        var source = dir.resolve("src/demo/Shipment.java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, SHIPMENT);
+        var classes = Files.createDirectories(dir.resolve("classes"));
+
+        var libraryClasses = Path.of(ValidationResult.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        var compiler = ToolProvider.getSystemJavaCompiler();
+        var output = new ByteArrayOutputStream();
+        int status = compiler.run(null, output, output,
+                "-classpath", libraryClasses.toString(),
+                "-processor", ValidatorProcessor.class.getName(),
+                "-processorpath", libraryClasses.toString(),
+                "-d", classes.toString(),
+                source.toString());
+        assertEquals(0, status, output.toString());
+
+        try (var loader = new URLClassLoader(new java.net.URL[]{classes.toUri().toURL()}, getClass().getClassLoader())) {
+            var shipmentClass = loader.loadClass("demo.Shipment");
+            var validatorClass = loader.loadClass("demo.ShipmentValidator");
+            var validator = validatorClass.getConstructor().newInstance();
+            var validate = validatorClass.getMethod("validate", shipmentClass);
+
+            var valid = shipmentClass.getConstructors()[0].newInstance("AB12", "AIR", 3, new java.math.BigDecimal("10"));
+            assertTrue(((ValidationResult) validate.invoke(validator, valid)).isValid());
+
+            var invalid = shipmentClass.getConstructors()[0].newInstance("ab-123456", "RAIL", 0, new java.math.BigDecimal("1000.51"));
+            var result = (ValidationResult) validate.invoke(validator, invalid);
+            List<String> codes = result.getErrors().stream().map(ValidationError::getCode).toList();
+
+            assertTrue(codes.contains(ErrorCode.LENGTH_GREATER_THAN));
+            assertTrue(codes.contains(ErrorCode.REGEX_DONT_MATCH));
+            assertTrue(codes.contains(ErrorCode.MUST_BE_ONE_OF));
+            assertTrue(codes.contains(ErrorCode.LOWER_THAN_MIN));
+            assertTrue(codes.contains(ErrorCode.GREATER_THAN_MAX));
+
+            var missing = shipmentClass.getConstructors()[0].newInstance(null, null, 1, null);
+            var missingResult = (ValidationResult) validate.invoke(validator, missing);
+            assertEquals(List.of(ErrorCode.MISSING_VALUE), missingResult.getErrors().stream().map(ValidationError::getCode).toList());
+        }
+    }
+}